@@ -0,0 +1,86 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import javax.swing.event.EventListenerList;
+
+/**
+ * Base class for {@link DPanelListModel} implementations that manages the listeners and fires the model events.
+ * <br><br>
+ * The model is also a read-only {@link List} view of its elements so it can be passed anywhere a {@link DPanelList} expects a list.
+ * 
+ * @author DUDSS
+ *
+ * @param <V> The type of the elements of the model.
+ */
+public abstract class AbstractDPanelListModel<V> extends AbstractList<V> implements DPanelListModel<V> {
+	protected EventListenerList listenerList = new EventListenerList();
+	
+	@Override
+	public int getSize() {
+		return size();
+	}
+	
+	@Override
+	public V getElementAt(int index) {
+		return get(index);
+	}
+	
+	@Override
+	public void addDPanelListModelListener(DPanelListModelListener l) {
+		listenerList.add(DPanelListModelListener.class, l);
+	}
+	
+	@Override
+	public void removeDPanelListModelListener(DPanelListModelListener l) {
+		listenerList.remove(DPanelListModelListener.class, l);
+	}
+	
+	public DPanelListModelListener[] getDPanelListModelListeners() {
+		return listenerList.getListeners(DPanelListModelListener.class);
+	}
+	
+	protected void fireIntervalAdded(int index0, int index1) {
+		fire(new DPanelListModelEvent(this, DPanelListModelEvent.Type.INTERVAL_ADDED, index0, index1));
+	}
+	
+	protected void fireIntervalRemoved(int index0, int index1) {
+		fire(new DPanelListModelEvent(this, DPanelListModelEvent.Type.INTERVAL_REMOVED, index0, index1));
+	}
+	
+	/**
+	 * Notifies the listeners that the elements in the range [index0, index1] changed.
+	 * Negative indexes signal that the whole model changed.
+	 */
+	protected void fireContentsChanged(int index0, int index1) {
+		fire(new DPanelListModelEvent(this, DPanelListModelEvent.Type.CONTENTS_CHANGED, index0, index1));
+	}
+	
+	protected void fireMoved(int index0, int index1, int targetIndex) {
+		fire(new DPanelListModelEvent(this, DPanelListModelEvent.Type.MOVED, index0, index1, targetIndex));
+	}
+	
+	private void fire(DPanelListModelEvent e) {
+		Object[] listeners = listenerList.getListenerList();
+		for (int i = listeners.length - 2; i >= 0; i -= 2) {
+			if (listeners[i] == DPanelListModelListener.class) {
+				DPanelListModelListener l = (DPanelListModelListener) listeners[i + 1];
+				switch (e.getType()) {
+					case INTERVAL_ADDED:
+						l.intervalAdded(e);
+						break;
+					case INTERVAL_REMOVED:
+						l.intervalRemoved(e);
+						break;
+					case CONTENTS_CHANGED:
+						l.contentsChanged(e);
+						break;
+					case MOVED:
+						l.moved(e);
+						break;
+				}
+			}
+		}
+	}
+}
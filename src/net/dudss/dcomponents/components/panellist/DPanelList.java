@@ -1,12 +1,15 @@
 package net.dudss.dcomponents.components.panellist;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Container;
 import java.awt.Cursor;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.GridLayout;
 import java.awt.Insets;
 import java.awt.Point;
@@ -14,35 +17,65 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
-import java.lang.reflect.InvocationTargetException;
+import java.awt.image.BufferedImage;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
-import java.util.Iterator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
+import javax.swing.AbstractAction;
+import javax.swing.ActionMap;
+import javax.swing.CellRendererPane;
+import javax.swing.DefaultListSelectionModel;
+import javax.swing.InputMap;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
 import javax.swing.border.MatteBorder;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 
 import net.dudss.dcomponents.misc.HSLColor;
 import net.dudss.dcomponents.misc.ScrollablePanel;
-import net.miginfocom.swing.MigLayout;
 
 /**
  * A swing component which represents a {@link List} in the form of a graphical scroll-able list
@@ -57,7 +90,31 @@ import net.miginfocom.swing.MigLayout;
  * To ensure data integrity the {@link #DPanelList.refresh()} method should be called programmatically after
  * the elements in the list change.
  * <br><br>
+ * For large lists the component can be switched into a virtualized mode using {@link #setVirtualized(boolean)}.
+ * In this mode panels are only created for the rows inside the viewport (plus a small overscan) and panels that scroll out
+ * of view are reused for other rows through {@link DPanelListItem#rebind(Object)}.
+ * In both modes panels are told when they scroll into and out of view through {@link DPanelListItem#onShown()} and
+ * {@link DPanelListItem#onHidden()}, so expensive content can be loaded lazily.
+ * Tiles such as thumbnails can be flowed into multiple columns with {@link #setGridMode(boolean)}.
+ * Long lists can be grouped into collapsible sections with sticky headers through {@link #setSectionKey(Function)}.
+ * <br><br>
+ * Rows can be selected with the arrow keys, Page Up/Down and Home/End, holding shift extends the selection. Typing the beginning of
+ * an element's key jumps to it once a key is set by {@link #setTypeAheadKey(Function)}.
+ * <br><br>
+ * Live logs and other streams of items can be displayed with a {@link DPanelListStreamModel}, which keeps a bounded number
+ * of elements and updates the list at most once per frame no matter how fast elements are appended.
+ * <br><br>
+ * Besides the selection, structure and double click action listeners any number of {@link DPanelListListener}s can be registered.
+ * They receive a single {@link DPanelListEvent} per turn of the event dispatch thread that describes the added, removed and moved rows
+ * and the selection delta, so they can update their state without reading the whole list or selection again.
+ * <br><br>
+ * Refreshes, panel creation, layout, painting and event dispatch can be timed by enabling {@link #setMetricsEnabled(boolean)},
+ * which also publishes the timings as a JMX MBean.
+ * <br><br>
  * <b>Note about concurrency:</b><br>
+ * Threads other than the event dispatch thread should modify the list through {@link #post(DPanelListOperation)}.
+ * Posting never blocks, the operations are applied on the event dispatch thread in batches once per frame.
+ * <br><br>
  * To avoid concurrency issues when the list is modified or iterated over on another thread, concurrency handling is required.
  * The ultimate method is to use a {@linkplain CopyOnWriteArrayList}.
  * You might want to use a {@linkplain Collections#synchronizedList(List)} or a {@linkplain Vector} to avoid issues during object refresh.
@@ -91,23 +148,104 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 		ABOVE, BELOW, INVALID
 	}
 	
+	/**
+	 * Panels representing the rows, index aligned with {@link #rows}.
+	 * In virtualized mode rows without a panel hold a null entry.
+	 */
 	private List<T> panels;
 	private List<V> objects;
 	
-	private Class<T> panelClass;
+	/**
+	 * Observable model backing {@link #objects} or null if a plain list is displayed.
+	 */
+	private DPanelListModel<V> model;
+	private final ModelHandler modelHandler = new ModelHandler();
+	private boolean ignoreModelEvents = false;
+	
+	/**
+	 * Whether a refresh for model events fired outside of the event dispatch thread is already queued, a burst of such events refreshes once.
+	 */
+	private final AtomicBoolean modelRefreshScheduled = new AtomicBoolean();
+	
+	/**
+	 * Objects currently displayed by the component, index aligned with {@link #panels}.
+	 */
+	private List<V> rows;
+	
+	/**
+	 * Creates the panel of a row, either supplied by the user or resolving the constructor of the panel class.
+	 */
+	private Function<V, T> panelFactory;
+	private BiConsumer<? super V, ? super RuntimeException> panelErrorHandler = (object, e) -> e.printStackTrace(System.err);
 	
 	private boolean enableDragAndDrop = true;
 	private boolean dragging = false;
-	private T lastActivePanel = null;
-	private T targetPanel = null;
+	private int lastActiveIndex = -1;
+	private int targetIndex = -1;
+	
+	/**
+	 * Snapshot of the dragged rows, painted translucently under the cursor while dragging. Created once when a drag starts.
+	 */
+	private BufferedImage dragImage;
+	private int dragImageWidth;
+	private int dragImageHeight;
+	private int dragImageAnchorY;
+	private boolean dragFeedbackActive = false;
+	
+	/**
+	 * Areas of the drag image and the drop indicator painted last, only these are repainted when the mouse moves.
+	 */
+	private Rectangle dragImageBounds;
+	private Rectangle dropIndicatorBounds;
 	
+	private static final float DRAG_IMAGE_ALPHA = 0.6f;
+	private static final int DRAG_IMAGE_MAX_HEIGHT = 240;
 	
-	private List<T> selectedPanels = new ArrayList<T>();
-	private T panelToDeselectOnRelease = null;
-	private T panelToSelectOnRelease = null;
+	/**
+	 * Indexes of the selected rows. Selection is stored per row and not per panel so it survives panel reuse.
+	 */
+	private ListSelectionModel selectionModel;
+	private final ListSelectionListener selectionHandler = this::selectionModelChanged;
+	private int indexToDeselectOnRelease = -1;
+	private int indexToSelectOnRelease = -1;
 	
 	private Point mousePos;
 	
+	/**
+	 * Y offsets of the materialized rows, rebuilt lazily after the layout changes.
+	 */
+	private final RowOffsetIndex rowOffsets = new RowOffsetIndex();
+	
+	/**
+	 * Row index of every displayed object by identity, rebuilt lazily after the rows were restructured.
+	 * Inserted and replaced rows are added to it, entries of shifted rows are detected as outdated on lookup.
+	 */
+	private final Map<V, Integer> rowIndex = new IdentityHashMap<>();
+	private boolean rowIndexValid = false;
+	
+	/**
+	 * Objects whose panels should be updated on the next event dispatch thread turn, guarded by itself.
+	 */
+	private final Set<V> dirtyItems = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean dirtyFlushScheduled = false;
+	
+	/**
+	 * Operations posted from any thread that are applied on the event dispatch thread once per frame.
+	 */
+	private final ConcurrentLinkedQueue<DPanelListOperation<V>> postedOperations = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean postDrainScheduled = new AtomicBoolean();
+	private Timer postTimer;
+	
+	/**
+	 * Minimum delay between applying two batches of posted operations, about one frame at 60 fps.
+	 */
+	private static final int POST_DELAY = 16;
+	
+	/**
+	 * Largest batch of posted operations that updates the rows through the events of the model, larger batches refresh once instead.
+	 */
+	private static final int INCREMENTAL_POST_LIMIT = 64;
+	
 	private JPanel innerPanel;
 	
 	Timer tweenTimer;
@@ -115,12 +253,115 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	public static int DEFAULT_GAP = 1;
 	public static int DEFAULT_SIDEGAP = 6;
 	public static int DEFAULT_SIDEGAP_BORDER_INSIDE = 0;
+	public static int DEFAULT_OVERSCAN = 4;
+	public static int DEFAULT_VISIBILITY_OVERSCAN = 2;
 	
 	private int gap;
 	private int sideGap;
 	private boolean paintBorderOutside = false;
 	private int lastGap = 200;
 	
+	private boolean virtualized = false;
+	private DPanelListLayout rowLayout;
+	private Deque<T> panelPool = new ArrayDeque<>();
+	private int overscan = DEFAULT_OVERSCAN;
+	private int fixedRowHeight = -1;
+	
+	/**
+	 * Whether the rows are flowed into a grid of cells, see {@link #setGridMode(boolean)}.
+	 */
+	private boolean gridMode = false;
+	private int gridCellWidth = -1;
+	private int gridCellHeight = -1;
+	
+	/**
+	 * Preferred size of the first panel, used as the cell size in grid mode unless a cell size is set. Null until measured.
+	 */
+	private Dimension measuredCellSize;
+	private static final int DEFAULT_CELL_SIZE = 100;
+	
+	/**
+	 * Computes the section of an element, null unless the list is sectioned, see {@link #setSectionKey(Function)}.
+	 */
+	private Function<? super V, ?> sectionKey;
+	private final SectionIndex sectionIndex = new SectionIndex();
+	private final Set<Object> collapsedSections = new HashSet<>();
+	private DPanelListSectionRenderer sectionRenderer = new DefaultSectionRenderer();
+	private final CellRendererPane sectionRendererPane = new CellRendererPane();
+	private int sectionHeaderHeight = -1;
+	
+	/**
+	 * Area of the sticky section header painted last, repainted when the viewport moves.
+	 */
+	private Rectangle stickyHeaderBounds;
+	
+	/**
+	 * Element of the row moved to by keyboard navigation, the end of the selection extended with shift.
+	 * Kept as an element so that it does not have to be remapped whenever the rows change.
+	 */
+	private V keyboardLead;
+	/**
+	 * Row the keyboard lead was last seen at, checked first so that the row index is only rebuilt if the lead moved.
+	 */
+	private int keyboardLeadRow = -1;
+	
+	/**
+	 * Computes the text typed to jump to an element, null if type-ahead is disabled, see {@link #setTypeAheadKey(Function)}.
+	 */
+	private Function<? super V, String> typeAheadKey;
+	private TypeAheadIndex<V> typeAheadIndex;
+	private TypeAheadBuild typeAheadBuild;
+	private Timer typeAheadTimer;
+	
+	/**
+	 * Incremented whenever the rows change, the index is only exact if it was built from the rows of the current version.
+	 */
+	private int typeAheadVersion = 0;
+	private int typeAheadIndexVersion = -1;
+	
+	/**
+	 * Elements reported as changed since the last build was started, their keys are computed again.
+	 */
+	private Set<V> typeAheadChanged = Collections.newSetFromMap(new IdentityHashMap<>());
+	
+	/**
+	 * Row the search for the typed prefix starts at once the index has been built, -1 if no search is waiting for it.
+	 */
+	private int pendingMatchStart = -1;
+	private String typedPrefix = "";
+	private long lastTypedMillis;
+	
+	/**
+	 * Time after the last change of the rows before the type-ahead index is rebuilt.
+	 */
+	private static final int TYPE_AHEAD_REBUILD_DELAY = 200;
+	
+	/**
+	 * Cached row heights of virtualized mode when there is no fixed row height.
+	 */
+	private final RowHeightCache rowHeights = new RowHeightCache();
+	private boolean rowHeightsUpdateScheduled = false;
+	private int windowFirst = 0;
+	private int windowLast = -1;
+	
+	/**
+	 * Panels that were notified through {@link DPanelListItem#onShown()} and not hidden since.
+	 */
+	private final Set<T> shownPanels = Collections.newSetFromMap(new IdentityHashMap<>());
+	private int visibilityOverscan = DEFAULT_VISIBILITY_OVERSCAN;
+	private Timer visibilityTimer;
+	private long visibilityPendingNanos = -1;
+	
+	/**
+	 * Time the viewport has to stay still before the shown rows are updated.
+	 */
+	private static final int VISIBILITY_DELAY = 50;
+	
+	/**
+	 * Longest time the shown rows are not updated while the viewport keeps moving.
+	 */
+	private static final long MAX_VISIBILITY_DELAY_NANOS = 200_000_000L;
+	
 	private double accelerationMax = 24d;
 	private double accelerationMin = 0.2d;
 	private double acceleration = 1.0;
@@ -128,12 +369,25 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	private int scrollDragBoundsHeight = 80;
 	private boolean scrollDown = false;
 	private boolean scrollUp = false;
+	private long lastScrollNanos;
+	private double scrollRemainder;
+	
+	/**
+	 * Duration of a single {@link #scrollDragStep}, the scroll speed is scaled by the actual time elapsed between timer ticks.
+	 */
+	private static final long SCROLL_STEP_NANOS = 10_000_000L;
+	private static final long MAX_SCROLL_ELAPSED_NANOS = 100_000_000L;
 
 	Color defaultBackground = UIManager.getColor("Panel.background");
 	Color dividerColor = UIManager.getColor("Separator.foreground");
 	Color dropHighlight = UIManager.getColor("Table.dropLineColor");
 	Color dropIndicator = new HSLColor(dropHighlight).adjustTone(50);
 	Border highlightBorder = new MatteBorder(0, 6, 0, 6, dropHighlight);
+	/**
+	 * Empty border with the insets of the highlight border, given to unselected panels so that swapping
+	 * the borders on selection only repaints the panel instead of laying it out again.
+	 */
+	private Border unselectedBorder;
 	
 	private SelectionMode selectionMode;
 	private boolean paintHighlights = true;
@@ -141,6 +395,41 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	private ActionListener actionListener;
 	private ActionListener doubleClickListener;
 	private ActionListener structureListener;
+	private DPanelListRefreshListener refreshListener;
+	
+	/**
+	 * Recorded timings or null while instrumentation is disabled, see {@link #setMetricsEnabled(boolean)}.
+	 */
+	private DPanelListMetrics metrics;
+	private static final int METRICS_RECENT_SAMPLES = 256;
+	
+	/**
+	 * Structure changes since the last {@link DPanelListEvent}, only collected while a {@link DPanelListListener} is registered.
+	 */
+	private List<DPanelListEvent.Change> pendingChanges = new ArrayList<>();
+	
+	/**
+	 * Selection at the time of the last {@link DPanelListEvent}, the selection delta of the next event is computed against it.
+	 */
+	private BitSet publishedSelection = new BitSet();
+	private boolean listEventScheduled = false;
+	
+	/**
+	 * The asynchronous refresh currently being computed or applied, null if there is none.
+	 */
+	private AsyncRefresh asyncRefresh;
+	
+	/**
+	 * Incremented whenever the rows are restructured by something else than an asynchronous refresh,
+	 * an asynchronous refresh that notices a change starts over from the current rows.
+	 */
+	private int structureVersion = 0;
+	
+	/**
+	 * Time an asynchronous refresh may spend applying changes on the event dispatch thread before yielding to other events.
+	 */
+	private static final long REFRESH_CHUNK_NANOS = 8_000_000L;
+	
 	
 	private static final String STRUCTURE_CHANGED = "StructureChanged";
 	private static final String SELECTION_CHANGED = "SelectionChanged";
@@ -219,11 +508,60 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	 * 
 	 * */
 	public DPanelList(List<V> objectList, Class<T> panelClass, SelectionMode selectionMode, boolean enableDragAndDrop, boolean paintHighlights, boolean paintBorderOutside, Component headerComponent, int gap, int sideGap) {
+		this(objectList, new PanelConstructorFactory<>(panelClass), selectionMode, enableDragAndDrop, paintHighlights, paintBorderOutside, headerComponent, gap, sideGap);
+	}
+	
+	/**
+	 * Creates the component like {@link #DPanelList(List, Class, SelectionMode)} but creates the item panels using
+	 * the specified factory instead of reflectively calling the constructor of a panel class.
+	 *
+	 * @param objectList The list that this component is representing and which elements will be passed to the individual item panels.
+	 * @param panelFactory Function creating the {@link DPanelListItem} representing a single {@link objectList} element.
+	 * @param selectionMode The selection mode of the component.
+	 */
+	public DPanelList(List<V> objectList, Function<V, T> panelFactory, SelectionMode selectionMode) {
+		this(objectList, panelFactory, selectionMode, false, true, true, null, DEFAULT_GAP, DEFAULT_SIDEGAP);
+	}
+	
+	/**
+	 * Creates the component like {@link #DPanelList(List, Class, SelectionMode, boolean, boolean, boolean, Component)} but creates the item panels using
+	 * the specified factory instead of reflectively calling the constructor of a panel class.
+	 *
+	 * @param objectList The list that this component is representing and which elements will be passed to the individual item panels.
+	 * @param panelFactory Function creating the {@link DPanelListItem} representing a single {@link objectList} element.
+	 * @param selectionMode The selection mode of the component.
+	 * @param enableDragAndDrop Whether to enable the drag-and-drop functionality.
+	 * @param paintHighlights Whether to call {@linkplain DPanelListItem#updateSelection(boolean)} upon panel selection and de-selection.
+	 * @param paintBorderOutside Whether to paint the selection border inside or outside of the item panels.
+	 * @param headerComponent Optional header component of the {@link JScrollPane} column header.
+	 */
+	public DPanelList(List<V> objectList, Function<V, T> panelFactory, SelectionMode selectionMode, boolean enableDragAndDrop, boolean paintHighlights, boolean paintBorderOutside, Component headerComponent) {
+		this(objectList, panelFactory, selectionMode, enableDragAndDrop, paintHighlights, paintBorderOutside, headerComponent, DEFAULT_GAP, paintBorderOutside ? DEFAULT_SIDEGAP : DEFAULT_SIDEGAP_BORDER_INSIDE);
+	}
+	
+	/**
+	 * Creates the component like {@link #DPanelList(List, Class, SelectionMode, boolean, boolean, boolean, Component, int, int)} but creates the item panels using
+	 * the specified factory instead of reflectively calling the constructor of a panel class.
+	 *
+	 * @param objectList The list that this component is representing and which elements will be passed to the individual item panels.
+	 * @param panelFactory Function creating the {@link DPanelListItem} representing a single {@link objectList} element.
+	 * @param selectionMode The selection mode of the component.
+	 * @param enableDragAndDrop Whether to enable the drag-and-drop functionality.
+	 * @param paintHighlights Whether to call {@linkplain DPanelListItem#updateSelection(boolean)} upon panel selection and de-selection.
+	 * @param paintBorderOutside Whether to paint the selection border inside or outside of the item panels.
+	 * @param headerComponent Optional header component of the {@link JScrollPane} column header.
+	 * @param gap Sets the gap in-between item panels..
+	 * @param sideGap Sets the left and right gap of item panels.
+	 */
+	public DPanelList(List<V> objectList, Function<V, T> panelFactory, SelectionMode selectionMode, boolean enableDragAndDrop, boolean paintHighlights, boolean paintBorderOutside, Component headerComponent, int gap, int sideGap) {
 		setupUI();
 		
 		panels = new ArrayList<>();
-		objects = objectList;
-		this.panelClass = panelClass;
+		rows = new ArrayList<>();
+		selectionModel = new DefaultListSelectionModel();
+		selectionModel.addListSelectionListener(selectionHandler);
+		setObjects(objectList, modelOf(objectList));
+		this.panelFactory = panelFactory;
 		this.selectionMode = selectionMode;
 		this.enableDragAndDrop = enableDragAndDrop;		
 		this.paintHighlights = paintHighlights;
@@ -242,27 +580,21 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 		if (objectList != null) {
 			//Populate the component with current object list elements
 			for (V object : objectList) {
-				try {
-					T panel = panelClass.getDeclaredConstructor(object.getClass()).newInstance(object);
+				T panel = createPanel(object);
+				if (panel != null) {
 					panels.add(panel);
+					rows.add(object);
 					panel.setIndex(panels.size() - 1);
-				} catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException | SecurityException e) {
-					e.printStackTrace(System.err);
 				}
 			}
 		}
 		
-		if (selectionMode == SelectionMode.SELECTION_FORCED) {
-			if (panels.size() > 0) {
-				panels.get(0).select();
-			}
-		}
+		ensureForcedSelection();
 		
 		if (selectionMode == SelectionMode.UNSELECTION_FORCED) {
 			this.paintHighlights = false;
 		}
 		
-		updateSelection();
 		regenerateRows();
 	}
 	
@@ -278,8 +610,21 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 		dropHighlight = UIManager.getColor("Table.dropLineColor");
 		dropIndicator = new HSLColor(dropHighlight).adjustTone(50);
 		highlightBorder = new MatteBorder(0, 6, 0, 6, dropHighlight);
+		unselectedBorder = null;
+		//Called by the JScrollPane constructor before the fields are initialized
+		if (rowHeights != null) {
+			rowHeights.clear();
+		}
+		measuredCellSize = null;
+		if (rowLayout != null) {
+			rowLayout.invalidatePreferredWidth();
+		}
+		if (sectionRenderer instanceof DefaultSectionRenderer) {
+			sectionRenderer = new DefaultSectionRenderer();
+		}
+		sectionHeaderHeight = -1;
 		
-		refreshSelectionPainting();
+		repaintSelectionIndicators();
 	}
 	
 	/**
@@ -305,6 +650,14 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	public void setStructureListener(ActionListener listener) {
 		this.structureListener = listener;
 	}
+	
+	/**
+	 * Sets the listener notified about the progress of {@link #refreshAsync()}.
+	 * @param listener
+	 */
+	public void setRefreshListener(DPanelListRefreshListener listener) {
+		this.refreshListener = listener;
+	}
 
 	public ActionListener getActionListener() {
 		return actionListener;
@@ -317,6 +670,27 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	public ActionListener getDoubleClickListener() {
 		return doubleClickListener;
 	}
+	
+	/**
+	 * Adds a listener that is notified once per turn of the event dispatch thread in which rows were added, removed, moved or updated
+	 * or the selection changed. Unlike the action listeners the {@link DPanelListEvent} tells exactly which rows changed.
+	 * @param listener
+	 */
+	public void addDPanelListListener(DPanelListListener listener) {
+		if (!hasListListeners()) {
+			pendingChanges.clear();
+			publishedSelection = getSelectionBits();
+		}
+		listenerList.add(DPanelListListener.class, listener);
+	}
+	
+	public void removeDPanelListListener(DPanelListListener listener) {
+		listenerList.remove(DPanelListListener.class, listener);
+	}
+	
+	public DPanelListListener[] getDPanelListListeners() {
+		return listenerList.getListeners(DPanelListListener.class);
+	}
 
 	/**
 	 * Whether to call {@linkplain DPanelListItem#updateSelection(boolean)} upon panel selection and de-selection.
@@ -325,121 +699,476 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 		paintHighlights = b;
 	}
 	
+	/**
+	 * Sets the handler notified when an item panel can not be created. The element is then not displayed until the next refresh.
+	 * The handler is also notified when a posted operation can not be applied, for example because its index is out of range.
+	 * The default handler prints the stack trace to the standard error stream.
+	 * @param handler Consumer of the element (null for operations without an element) and the exception thrown.
+	 */
+	public void setPanelErrorHandler(BiConsumer<? super V, ? super RuntimeException> handler) {
+		this.panelErrorHandler = handler != null ? handler : (object, e) -> {};
+	}
+	
 	public List<V> getList() {
 		return objects;
 	}
 	
+	/**
+	 * Returns the number of rows. In virtualized mode only some of the rows are backed by a panel.
+	 */
 	public int getPanelCount() {
 		return panels.size();
 	}
 	
 	/**
-	 * Sets the list of items the component should display and calls the {@link #refresh()} method.
-	 * @param list
+	 * Switches between creating a panel for every element of the list and creating panels only for the rows
+	 * inside the viewport.
+	 * <br><br>
+	 * In virtualized mode panels scrolled out of view are kept in a pool and reused for rows that come into view by calling
+	 * {@link DPanelListItem#rebind(Object)}. Memory and layout cost then depend on the size of the viewport instead of the size of the list.
+	 * Rows either share the height set by {@link #setFixedRowHeight(int)} or get the preferred height of their panel.
+	 * Preferred heights are measured once per object and row width, rows that were never measured count with the average height
+	 * of the measured ones. {@link #refreshItem(Object)} makes the row measure its height again.
+	 * <br><br>
+	 * It is best to enable this mode before populating the component to avoid creating a panel for every element.
+	 * Turning this mode off also turns off {@link #setGridMode(boolean) grid mode}.
+	 * @param virtualized Whether only the visible rows should be backed by panels.
 	 */
-	public void setList(List<V> list) {
-		this.objects = list;		
-		refresh();
+	public void setVirtualized(boolean virtualized) {
+		if (this.virtualized == virtualized) return;
+		this.virtualized = virtualized;
+		if (!virtualized) {
+			gridMode = false;
+		}
+		structureVersion++;
+		
+		innerPanel.removeAll();
+		panelPool.clear();
+		for (int i = 0; i < panels.size(); i++) {
+			T panel = panels.get(i);
+			if (panel != null) {
+				panel.setIndex(-1);
+				if (virtualized) panels.set(i, null);
+			}
+		}
+		windowFirst = 0;
+		windowLast = -1;
+		rowHeights.clear();
+		rowLayout.invalidatePreferredWidth();
+		
+		if (!virtualized) {
+			//Every row needs a panel again
+			for (int i = 0; i < rows.size(); i++) {
+				if (panels.get(i) == null) {
+					panels.set(i, createPanel(rows.get(i)));
+				}
+			}
+			panels.removeIf(panel -> panel == null);
+			if (panels.size() != rows.size()) {
+				rows.clear();
+				for (T panel : panels) {
+					rows.add(panel.object);
+				}
+			}
+		}
+		regenerateRows();
+	}
+	
+	public boolean isVirtualized() {
+		return virtualized;
 	}
 	
 	/**
-	 * Sets the list of items the component should display and calls the {@link #refresh()} method.
-	 * @param list
-	 * @param structureChangedEvent Whether a structure changed event should be fired.
+	 * Sets the number of rows above and below the viewport that are backed by panels in virtualized mode.
 	 */
-	public void setList(List<V> list, boolean structureChangedEvent) {
-		this.objects = list;
-		refresh(structureChangedEvent);
+	public void setOverscan(int overscan) {
+		this.overscan = Math.max(0, overscan);
+		if (virtualized) updateVirtualWindow(null);
+	}
+	
+	public int getOverscan() {
+		return overscan;
 	}
 	
 	/**
-	 * Returns the currently selected element.
-	 * @see {@link SelectionMode}
+	 * Sets the number of rows above and below the viewport whose panels are considered visible,
+	 * see {@link DPanelListItem#onShown()} and {@link DPanelListItem#onHidden()}.
+	 * In virtualized mode only rows backed by a panel can be shown, so the overscan is limited by {@link #setOverscan(int)}.
 	 */
-	public V getSelectedItem() {
-		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return null;
-		if (selectedPanels.size() > 0) {
-			return selectedPanels.get(0).object;
-		}
-		return null;
+	public void setVisibilityOverscan(int overscan) {
+		this.visibilityOverscan = Math.max(0, overscan);
+		scheduleVisibilityUpdate();
+	}
+	
+	public int getVisibilityOverscan() {
+		return visibilityOverscan;
 	}
 	
 	/**
-	 * Returns the currently selected elements' index. -1 for none.
-	 * @see {@link SelectionMode}
+	 * Sets the height of every row in virtualized mode. A value less than 1 makes every row use
+	 * the preferred height of its panel instead.
 	 */
-	public int getSelectedIndex() {
-		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return -1;
-		if (selectedPanels.size() > 0) {
-			return selectedPanels.get(0).index();
+	public void setFixedRowHeight(int height) {
+		this.fixedRowHeight = height;
+		rowHeights.clear();
+		if (virtualized) {
+			updateVirtualWindow(null);
+			revalidateAndRepaint();
 		}
-		return -1;
+	}
+	
+	public int getFixedRowHeight() {
+		return fixedRowHeight;
 	}
 	
 	/**
-	 * Returns all currently selected elements.
-	 * @see {@link SelectionMode}
-	 * @return A list with the selected elements. This list is empty if there is no selection.
+	 * Switches between stacking the rows on top of each other and flowing them into a grid of equally sized cells, for example to display thumbnails.
+	 * <br><br>
+	 * The number of columns is derived from the viewport width and the cell size, which is either set by {@link #setGridCellSize(int, int)}
+	 * or taken from the preferred size of the first panel. Cells are separated by the gap of the list in both directions.
+	 * Grid mode is always virtualized, only the grid rows inside the viewport and the overscan are backed by panels,
+	 * so resizing the component only re-flows the visible cells. Drag-and-drop drops the dragged elements in front of or behind the cell under the mouse.
+	 * Turning grid mode on turns off {@link #setSectionKey(Function) sectioned mode}.
+	 * @param gridMode Whether the rows should be displayed as a grid.
 	 */
-	public List<V> getSelectedItems() {
-		List<V> list = new ArrayList<V>();
- 		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return list;
-		for (T p : selectedPanels) {
-			list.add(p.object);
+	public void setGridMode(boolean gridMode) {
+		if (this.gridMode == gridMode) return;
+		if (gridMode && sectionKey != null) {
+			setSectionKey(null);
 		}
-		return list;
+		this.gridMode = gridMode;
+		measuredCellSize = null;
+		if (gridMode && !virtualized) {
+			setVirtualized(true);
+			return;
+		}
+		if (virtualized) {
+			//The window is computed from the new geometry
+			Map<V, T> reusablePanels = detachVirtualWindow();
+			attachVirtualWindow(reusablePanels);
+		}
+		updateRows();
+	}
+	
+	public boolean isGridMode() {
+		return gridMode;
 	}
 	
 	/**
-	 * Returns indexes of all currently selected elements.
-	 * @see {@link SelectionMode}
-	 * @return A array of the selected indexes. This array is empty if there is no selection.
+	 * Sets the size of the cells in grid mode. A value less than 1 makes the cells use the preferred width or height of the first panel instead.
 	 */
-	public int[] getSelectedIndexes() {
-		int selection[] = new int[selectedPanels.size()];
-		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return selection;
-		for (int i = 0; i < selectedPanels.size(); i++) {
-			selection[i] = selectedPanels.get(i).index();
+	public void setGridCellSize(int width, int height) {
+		this.gridCellWidth = width;
+		this.gridCellHeight = height;
+		measuredCellSize = null;
+		if (gridMode) {
+			updateVirtualWindow(null);
+			revalidateAndRepaint();
 		}
-		return selection;
 	}
 	
 	/**
-	 * Deselects everything and selects a single specific item.
-	 * @param item Item to select.
-	 * @return True if item was marked as selected, false if not found.
+	 * Returns the cell size set by {@link #setGridCellSize(int, int)}.
 	 */
-	public boolean setSelectedItem(V item) {
-		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return false;
-		deselectAll();
-		T foundPanel = findPanelForItem(item);
-		if (foundPanel != null) {
-			foundPanel.select();
-			selectedPanels.add(foundPanel);
-			refreshSelectionPainting();
-			return true;
-		}
-		return false;
+	public Dimension getGridCellSize() {
+		return new Dimension(gridCellWidth, gridCellHeight);
 	}
 	
 	/**
-	 * Deselects everything and selects a single item at a specified index of the list.
-	 * @param item Index of the item to select.
-	 * @return True if item was marked as selected, false if not found.
+	 * Groups the list into sections of consecutive elements sharing the same key. Each section gets a header that collapses or expands it when clicked.
+	 * <br><br>
+	 * The list is expected to be ordered by the key, equal keys that are not adjacent form separate sections.
+	 * Only the elements of expanded sections get a row, so a collapsed section does not create any panels.
+	 * Collapsing a section updates the rows at once, while expanding one goes through {@link #refreshAsync()} so that the panels
+	 * of a large section are created in chunks and the component stays responsive. The header of the section at the top of the viewport
+	 * sticks to the top of it until the next header pushes it out.
+	 * <br><br>
+	 * In sectioned mode row indexes, for example those of the selection, {@link #moveItems(int[], int)} and {@link DPanelListEvent}s,
+	 * refer to the rows of the expanded sections. Changes of the model refresh the rows and drag-and-drop only drops within the section of the dragged rows.
+	 * The key function is also called on the worker thread of {@link #refreshAsync()}. Turning sectioned mode on turns off {@link #setGridMode(boolean) grid mode}.
+	 * @param sectionKey Function computing the section key of an element or null to turn sectioned mode off.
 	 */
-	public boolean setSelectedIndex(int index) {
-		return setSelectedIndex(index, false);
+	public void setSectionKey(Function<? super V, ?> sectionKey) {
+		this.sectionKey = sectionKey;
+		sectionIndex.setSections(Collections.emptyList());
+		sectionHeaderHeight = -1;
+		stickyHeaderBounds = null;
+		if (sectionKey != null) {
+			setGridMode(false);
+		}
+		refresh();
 	}
 	
-	private boolean setSelectedIndex(int index, boolean repaint) {
-		if (panels == null || index >= panels.size() || index < 0) {
-			return false;
-		}
-		T panel = panels.get(index);
-		panel.select();
-		selectedPanels.add(panel);
-		if (repaint) refreshSelectionPainting();
-		return true;
+	public Function<? super V, ?> getSectionKey() {
+		return sectionKey;
+	}
+	
+	/**
+	 * Sets the renderer painting the section headers in sectioned mode.
+	 * @param renderer The renderer or null to use the default one, which shows the key and the number of elements of the section.
+	 */
+	public void setSectionHeaderRenderer(DPanelListSectionRenderer renderer) {
+		sectionRenderer = renderer != null ? renderer : new DefaultSectionRenderer();
+		sectionHeaderHeight = -1;
+		revalidateAndRepaint();
+	}
+	
+	public DPanelListSectionRenderer getSectionHeaderRenderer() {
+		return sectionRenderer;
+	}
+	
+	/**
+	 * Collapses or expands the section with the specified key. The state is kept for the key, even if there currently is no such section
+	 * or the list is not sectioned.
+	 */
+	public void setSectionCollapsed(Object key, boolean collapsed) {
+		if (collapsed ? !collapsedSections.add(key) : !collapsedSections.remove(key)) return;
+		if (sectionKey == null) return;
+		if (collapsed) {
+			refresh();
+		} else {
+			//Stream the rows of a large section in instead of creating all of its panels at once
+			refreshAsync();
+		}
+	}
+	
+	public boolean isSectionCollapsed(Object key) {
+		return collapsedSections.contains(key);
+	}
+	
+	/**
+	 * Enables jumping to a row by typing the beginning of its key while the list has the keyboard focus, ignoring case.
+	 * Characters typed in quick succession extend the prefix, typing the same character repeatedly cycles through the rows starting with it.
+	 * <br><br>
+	 * The keys are kept in a sorted prefix index, so finding a row takes a binary search instead of a scan over every element.
+	 * The index is built on a worker thread and rebuilt shortly after the rows changed, computing keys only for elements it does not know yet.
+	 * The key of an element is therefore assumed to stay the same unless the model reports a change of the element.
+	 * @param typeAheadKey Function computing the key of an element on a worker thread or null to disable type-ahead.
+	 */
+	public void setTypeAheadKey(Function<? super V, String> typeAheadKey) {
+		this.typeAheadKey = typeAheadKey;
+		typeAheadIndex = null;
+		typeAheadBuild = null;
+		typeAheadChanged.clear();
+		pendingMatchStart = -1;
+		typedPrefix = "";
+		if (typeAheadKey != null) {
+			buildTypeAheadIndex();
+		} else {
+			typeAheadTimer.stop();
+		}
+	}
+	
+	public Function<? super V, String> getTypeAheadKey() {
+		return typeAheadKey;
+	}
+	
+	/**
+	 * Returns the first row at or after the start index whose type-ahead key starts with the prefix, ignoring case.
+	 * The search wraps around to the first matching row.
+	 * @return The row index or -1 if no row matches, type-ahead is disabled or its index has not been built yet.
+	 */
+	public int getNextMatch(String prefix, int startIndex) {
+		if (typeAheadIndex == null || prefix.isEmpty()) return -1;
+		int row = typeAheadIndex.find(prefix, startIndex);
+		if (row == -1 || typeAheadIndexVersion == typeAheadVersion) return row;
+		//The rows changed since the index was built, a rebuild is already scheduled
+		return indexOfRow(typeAheadIndex.getRow(row));
+	}
+	
+	/**
+	 * Scrolls the viewport so that the row at the specified index is visible, below the sticky header in sectioned mode.
+	 * The bounds of the row are computed by the layout, so the row does not need to be backed by a panel.
+	 */
+	public void ensureIndexIsVisible(int index) {
+		if (index < 0 || index >= rows.size()) return;
+		Rectangle bounds = getRowBounds(index);
+		if (getSections() != null) {
+			int headerHeight = getSectionHeaderHeight();
+			bounds.y -= headerHeight;
+			bounds.height += headerHeight;
+		}
+		innerPanel.scrollRectToVisible(bounds);
+	}
+	
+	/**
+	 * Enables timing of refreshes, diffs, panel creation, layout, painting and event dispatch in nanoseconds, see {@link DPanelListMetrics}.
+	 * While enabled the metrics are published as a JMX MBean named after the list, {@link DPanelListMetrics#getObjectName()}.
+	 * The MBean is only registered while the list is displayable, it is unregistered when the list is removed from its parent
+	 * and registered again when it is added, so the MBean server never keeps a discarded list alive.
+	 * <br><br>
+	 * While disabled no time is taken, a measured operation only checks whether instrumentation is enabled.
+	 * Disabling unregisters the MBean and discards the recorded samples.
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		if (enabled == (metrics != null)) return;
+		if (enabled) {
+			metrics = new DPanelListMetrics(METRICS_RECENT_SAMPLES);
+			if (isDisplayable()) {
+				registerMetrics();
+			}
+		} else {
+			metrics.unregister();
+			metrics = null;
+		}
+	}
+	
+	public boolean isMetricsEnabled() {
+		return metrics != null;
+	}
+	
+	private void registerMetrics() {
+		metrics.register(getName() != null ? getName() : "DPanelList");
+	}
+	
+	/**
+	 * Returns the recorded timings or null if instrumentation is disabled.
+	 */
+	public DPanelListMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Sets the list of items the component should display and calls the {@link #refresh()} method.
+	 * @param list
+	 */
+	public void setList(List<V> list) {
+		setObjects(list, modelOf(list));
+		refresh();
+	}
+	
+	/**
+	 * Sets the list of items the component should display and calls the {@link #refresh()} method.
+	 * @param list
+	 * @param structureChangedEvent Whether a structure changed event should be fired.
+	 */
+	public void setList(List<V> list, boolean structureChangedEvent) {
+		setObjects(list, modelOf(list));
+		refresh(structureChangedEvent);
+	}
+	
+	/**
+	 * Sets the model of items the component should display and calls the {@link #refresh()} method.
+	 * <br><br>
+	 * The component listens to the events of the model and only updates the rows affected by each change,
+	 * so calling {@link #refresh()} after modifying a mutable model (such as {@link DefaultDPanelListModel}) is not necessary.
+	 * Drag-and-drop reordering modifies the model through the {@link List} interface, it is ignored for read-only models
+	 * such as a {@link DPanelListView} or a {@link DPanelListStreamModel}.
+	 * @param model The model or null to display nothing.
+	 */
+	public void setModel(DPanelListModel<V> model) {
+		if (model == null) {
+			setList(null);
+			return;
+		}
+		setObjects(model instanceof List ? asList(model) : new ModelList<>(model), model);
+		refresh();
+	}
+	
+	/**
+	 * Returns the model the component is listening to or null if the displayed list is not a {@link DPanelListModel}.
+	 */
+	public DPanelListModel<V> getModel() {
+		return model;
+	}
+	
+	private void setObjects(List<V> list, DPanelListModel<V> listModel) {
+		if (model != null) {
+			model.removeDPanelListModelListener(modelHandler);
+		}
+		objects = list;
+		model = listModel;
+		if (model != null) {
+			model.addDPanelListModelListener(modelHandler);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <V> DPanelListModel<V> modelOf(List<V> list) {
+		return list instanceof DPanelListModel ? (DPanelListModel<V>) list : null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <V> List<V> asList(DPanelListModel<V> model) {
+		return (List<V>) model;
+	}
+	
+	/**
+	 * Returns the currently selected element.
+	 * @see {@link SelectionMode}
+	 */
+	public V getSelectedItem() {
+		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return null;
+		int index = selectionModel.getMinSelectionIndex();
+		if (index != -1) {
+			return rows.get(index);
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the currently selected elements' index. -1 for none.
+	 * @see {@link SelectionMode}
+	 */
+	public int getSelectedIndex() {
+		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return -1;
+		return selectionModel.getMinSelectionIndex();
+	}
+	
+	/**
+	 * Returns all currently selected elements.
+	 * @see {@link SelectionMode}
+	 * @return A list with the selected elements. This list is empty if there is no selection.
+	 */
+	public List<V> getSelectedItems() {
+		List<V> list = new ArrayList<V>();
+ 		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return list;
+		int max = Math.min(selectionModel.getMaxSelectionIndex(), rows.size() - 1);
+		for (int i = Math.max(0, selectionModel.getMinSelectionIndex()); i <= max; i++) {
+			if (selectionModel.isSelectedIndex(i)) {
+				list.add(rows.get(i));
+			}
+		}
+		return list;
+	}
+	
+	/**
+	 * Returns indexes of all currently selected elements.
+	 * @see {@link SelectionMode}
+	 * @return A array of the selected indexes. This array is empty if there is no selection.
+	 */
+	public int[] getSelectedIndexes() {
+		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return new int[0];
+		return getSelectionBits().stream().toArray();
+	}
+	
+	/**
+	 * Deselects everything and selects a single specific item.
+	 * @param item Item to select.
+	 * @return True if item was marked as selected, false if not found.
+	 */
+	public boolean setSelectedItem(V item) {
+		if (this.selectionMode == SelectionMode.UNSELECTION_FORCED) return false;
+		deselectAll();
+		int foundIndex = indexOfRow(item);
+		if (foundIndex != -1) {
+			selectionModel.addSelectionInterval(foundIndex, foundIndex);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Deselects everything and selects a single item at a specified index of the list.
+	 * @param item Index of the item to select.
+	 * @return True if item was marked as selected, false if not found.
+	 */
+	public boolean setSelectedIndex(int index) {
+		if (rows == null || index >= rows.size() || index < 0) {
+			return false;
+		}
+		selectionModel.addSelectionInterval(index, index);
+		return true;
 	}
 	
 	/**
@@ -452,18 +1181,13 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 		boolean foundAtLeastOne = false;
 		deselectAll();
 		for (V item : items) {
-			T foundPanel = findPanelForItem(item);
-			if (foundPanel != null) {
-				foundPanel.select();
-				selectedPanels.add(foundPanel);
+			int foundIndex = indexOfRow(item);
+			if (foundIndex != -1) {
+				selectionModel.addSelectionInterval(foundIndex, foundIndex);
 				foundAtLeastOne = true;
 			}
 		}
-		if (foundAtLeastOne) {
-			refreshSelectionPainting();
-			return true;
-		}
-		return false;
+		return foundAtLeastOne;
 	}
 	
 	/**
@@ -474,31 +1198,39 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	public boolean setSelectedIndexes(int... indexes) {
 		boolean atLeastOneFound = false;
 		for (int index : indexes) {
-			if (setSelectedIndex(index, false)) {
+			if (setSelectedIndex(index)) {
 				atLeastOneFound = true;
 			}
 		}
-		refreshSelectionPainting();
 		return atLeastOneFound;
 	}
 	
 	/**
-	 * Finds the panel representing this item if it exists.
-	 * @return The panel or null if not found.
+	 * Finds the row displaying this item if it exists.
+	 * @return The row index or -1 if not found.
 	 */
-	private T findPanelForItem(V item) {
-		for (T panel : panels) {
-			if (panel.object == item) { //Object comparison
-				return panel;
+	private int indexOfRow(V item) {
+		if (rowIndexValid) {
+			Integer index = rowIndex.get(item);
+			if (index == null) {
+				return -1;
+			}
+			if (index < rows.size() && rows.get(index) == item) { //Object comparison
+				return index;
 			}
 		}
-		return null;
+		//Rebuild after the rows changed, the first occurrence of an object wins
+		rowIndex.clear();
+		for (int i = rows.size() - 1; i >= 0; i--) {
+			rowIndex.put(rows.get(i), i);
+		}
+		rowIndexValid = true;
+		Integer index = rowIndex.get(item);
+		return index != null ? index : -1;
 	}
 	
 	public void deselectAll() {
-		deselectAllPanels();
-		updateSelection();
-		refreshSelectionPainting();
+		deselectAllRows();
 	}
 	
 	/**
@@ -514,399 +1246,2741 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	 * Updates the current panel list according to the referenced object list.
 	 * This method ensures that the order and size of both lists is exactly the same.
 	 * Panels get removed or created based on the list differences.
+	 * <br><br>
+	 * Panels are matched to objects by reference in linear time, so re-sorting or inserting into large lists stays cheap.
 	 * 
 	 * @param fireListeners Whether to fire structure change listener or not.
 	 */
 	public void refresh(boolean fireListeners) {
+		long start = startTiming();
+		asyncRefresh = null;
+		List<V> newRows;
 		if (objects == null) {
-			panels.clear();
-			regenerateRows();
-			if (structureListener != null && fireListeners) {
-				structureListener.actionPerformed(generateEvent(STRUCTURE_CHANGED));
+			newRows = new ArrayList<>();
+		} else {
+			synchronized (objects) {
+				newRows = new ArrayList<>(objects);
 			}
+		}
+		if (sectionKey != null) {
+			List<SectionIndex.Section> sections = new ArrayList<>();
+			newRows = SectionIndex.split(newRows, sectionKey, collapsedSections, sections);
+			sectionIndex.setSections(sections);
+		}
+		long diffStart = startTiming();
+		IdentityDiff diff = new IdentityDiff(rows, newRows);
+		stopTiming(DPanelListMetrics.Metric.DIFF, diffStart);
+		
+		if (objects == null) {
+			releasePanels();
+			panels.clear();
+			rows.clear();
+		} else if (virtualized) {
+			refreshVirtualRows(newRows);
+		} else {
+			refreshPanels(newRows, diff, diff.getMovedIndexes());
+		}
+		
+		remapSelection(diff.oldToNew);
+		recordRefresh(diff.oldToNew, rows.size());
+		ensureForcedSelection();
+		updateRows();
+		stopTiming(DPanelListMetrics.Metric.REFRESH, start);
+		if (fireListeners) {
+			fireStructureListener(generateEvent(STRUCTURE_CHANGED));
+		}
+	}
+	
+	/**
+	 * Asynchronous variant of {@link #refresh()} for large lists.
+	 * @see #refreshAsync(boolean)
+	 */
+	public void refreshAsync() {
+		refreshAsync(true);
+	}
+	
+	/**
+	 * Asynchronous variant of {@link #refresh(boolean)} for large lists.
+	 * <br><br>
+	 * A snapshot of the object list is compared to the current rows on a worker thread. The removals and moves are then applied
+	 * on the event dispatch thread at once while the new panels are created and inserted in chunks of about 8ms,
+	 * so the component stays responsive while a large list is loading. The progress is reported to the {@link DPanelListRefreshListener}.
+	 * <br><br>
+	 * Calling this method again or calling {@link #refresh()} supersedes a running asynchronous refresh.
+	 * A refresh that notices the rows have been changed in the meantime, for example by drag-and-drop, starts over.
+	 * Events of the model arriving while the refresh is running do not restart it, they are caught up by a single further refresh once it has been applied.
+	 * This method can be called from any thread.
+	 * 
+	 * @param fireListeners Whether to fire structure change listener once the refresh finished.
+	 */
+	public void refreshAsync(boolean fireListeners) {
+		if (!SwingUtilities.isEventDispatchThread()) {
+			SwingUtilities.invokeLater(() -> refreshAsync(fireListeners));
+			return;
+		}
+		if (objects == null) {
+			refresh(fireListeners);
 			return;
 		}
+		asyncRefresh = new AsyncRefresh(objects, fireListeners);
+		asyncRefresh.execute();
+	}
+	
+	/**
+	 * Whether an asynchronous refresh is being computed or applied.
+	 */
+	public boolean isRefreshing() {
+		return asyncRefresh != null;
+	}
+	
+	/**
+	 * Reconciles the panel list with a snapshot of the object list.
+	 * Panels of objects that are still present are reused, new objects get a new panel and panels of removed objects are dropped.
+	 * <br><br>
+	 * Only the affected panels are removed, inserted or moved within the component hierarchy.
+	 * Moved panels keep being displayable, so they do not go through removeNotify/addNotify.
+	 * @param newRows Snapshot of the object list.
+	 * @param diff Matching of the current rows to the snapshot. Its old to new mapping is updated in case a panel could not be created.
+	 * @param moved The new indexes of the matched panels that have to be moved, see {@link IdentityDiff#getMovedIndexes()}.
+	 */
+	private void refreshPanels(List<V> newRows, IdentityDiff diff, BitSet moved) {
+		List<T> newPanels = new ArrayList<>(newRows.size());
+		List<V> reconciledRows = new ArrayList<>(newRows.size());
+		BitSet placed = new BitSet();
+		for (int i = 0; i < newRows.size(); i++) {
+			V object = newRows.get(i);
+			int oldIndex = diff.newToOld[i];
+			T panel = oldIndex != -1 ? panels.get(oldIndex) : createPanel(object);
+			if (panel == null) {
+				continue;
+			}
+			if (oldIndex != -1) {
+				diff.oldToNew[oldIndex] = newPanels.size();
+			}
+			if (oldIndex == -1 || moved.get(i)) {
+				placed.set(newPanels.size());
+			}
+			panel.setIndex(newPanels.size());
+			newPanels.add(panel);
+			reconciledRows.add(object);
+		}
+		
+		//Apply the edit script, the children of the inner panel are in the same order as the old panel list
+		for (int i = panels.size() - 1; i >= 0; i--) {
+			if (diff.oldToNew[i] == -1) {
+				panels.get(i).setIndex(-1);
+				innerPanel.remove(i);
+			}
+		}
+		for (int i = placed.previousSetBit(newPanels.size() - 1); i >= 0; i = placed.previousSetBit(i - 1)) {
+			T panel = newPanels.get(i);
+			int anchor = i + 1 < newPanels.size() ? innerPanel.getComponentZOrder(newPanels.get(i + 1)) : innerPanel.getComponentCount();
+			if (panel.getParent() == innerPanel) {
+				int current = innerPanel.getComponentZOrder(panel);
+				innerPanel.setComponentZOrder(panel, current < anchor ? anchor - 1 : anchor);
+			} else {
+				innerPanel.add(panel, anchor);
+			}
+		}
+		
+		panels = newPanels;
+		rows = reconciledRows;
+	}
+	
+	/**
+	 * Takes a snapshot of the object list and rebinds the panels of the visible rows.
+	 * Panels already displaying an object of the new snapshot keep displaying it.
+	 */
+	private void refreshVirtualRows(List<V> newRows) {
+		Map<V, T> reusablePanels = detachVirtualWindow();
+		rows = newRows;
+		panels = new ArrayList<>(Collections.nCopies(rows.size(), (T) null));
+		rowHeights.invalidate();
+		attachVirtualWindow(reusablePanels);
+	}
+	
+	/**
+	 * Unbinds the panels of the current virtual window so the rows can be restructured.
+	 * @return The unbound panels mapped to the objects they are displaying.
+	 */
+	private Map<V, T> detachVirtualWindow() {
+		Map<V, T> reusablePanels = new IdentityHashMap<>();
+		for (int i = firstMaterializedRow(); i <= lastMaterializedRow(); i++) {
+			T panel = panels.get(i);
+			if (panel != null) {
+				T duplicate = reusablePanels.put(rows.get(i), panel);
+				if (duplicate != null) {
+					recyclePanel(duplicate);
+				}
+				panels.set(i, null);
+			}
+		}
+		return reusablePanels;
+	}
+	
+	/**
+	 * Binds a new virtual window preferring the panels returned by {@link #detachVirtualWindow()}, the rest of them is recycled.
+	 */
+	private void attachVirtualWindow(Map<V, T> reusablePanels) {
+		sectionIndex.invalidate();
+		windowFirst = 0;
+		windowLast = -1;
+		updateVirtualWindow(reusablePanels);
 		
+		for (T panel : reusablePanels.values()) {
+			recyclePanel(panel);
+		}
+		trimPanelPool();
+	}
+	
+	/**
+	 * Creates panels for elements inserted into the model in the range [index0, index1].
+	 * Falls back to {@link #refresh()} if the rows are out of sync with the model.
+	 */
+	private void rowsInserted(int index0, int index1) {
+		int length = index1 - index0 + 1;
+		List<V> inserted;
 		synchronized (objects) {
-			Iterator<V> itrObjects = objects.iterator();
-			ListIterator<T> itrPanels = panels.listIterator();
-			
-			for (int i = 0; i < (objects.size() > panels.size() ? objects.size() : panels.size()); i++) {
-				V obj;
-				T panel;
-				
-				if (itrObjects.hasNext() && itrPanels.hasNext()) {
-					obj = itrObjects.next();
-					panel = itrPanels.next();
-					
-					if (panel.object == obj) { // Object comparison
-						continue;
-					} else {
-						//Search for the object that is supposed to in this position
-						boolean requiredPanelFound = false;
-						for (int y = (i+1); y < panels.size(); y++) {
-							if (panels.get(y).object == obj) { // Object comparison
-								panels.set(i, panels.get(y));
-								panels.get(y).setIndex(i);
-								panels.set(y, panel);
-								panel.setIndex(y);
-								
-								requiredPanelFound = true;
-								break;
-							} 
-						}
-						if (requiredPanelFound) continue;
-						//An appropriate panel was not found, create a new instance						
-						T newPanel;
-						try {
-							newPanel = panelClass.getDeclaredConstructor(obj.getClass()).newInstance(obj);
-							itrPanels.previous();
-							itrPanels.add(newPanel);
-							newPanel.setIndex(itrPanels.nextIndex() - 1);
-						} catch (Exception e) {
-							e.printStackTrace(System.err);
-						}
-					}
-				} else				
-				if (itrObjects.hasNext() && !itrPanels.hasNext()) {
-					//Creating new panels for the rest of the objects list
-					for (int y = i; y < objects.size(); y++) {
-						T newPanel;
-						try {
-							V objectAtY = objects.get(y);
-							newPanel = panelClass.getDeclaredConstructor(objectAtY.getClass()).newInstance(objectAtY);
-							panels.add(newPanel);
-							newPanel.setIndex(panels.size() - 1);
-						} catch (Exception e) {
-							e.printStackTrace(System.err);
-						}					
-					}
-					break;
-				} else 
-				if (!itrObjects.hasNext() && itrPanels.hasNext()) {
-					//Removing all remaining panels
-					Iterator<T> removeIterator = panels.listIterator(i);
-					while (removeIterator.hasNext()) {
-						removeIterator.next().setIndex(-1);
-						removeIterator.remove();
-					}
-					break;
+			if (index0 < 0 || index0 > rows.size() || objects.size() != rows.size() + length) {
+				refresh();
+				return;
+			}
+			inserted = new ArrayList<>(objects.subList(index0, index1 + 1));
+		}
+		List<T> newPanels = null;
+		if (!virtualized) {
+			newPanels = new ArrayList<>(length);
+			for (V object : inserted) {
+				T panel = createPanel(object);
+				if (panel == null) {
+					refresh();
+					return;
 				}
+				newPanels.add(panel);
+			}
+		}
+		
+		selectionModel.setValueIsAdjusting(true);
+		insertSelectionRows(index0, length);
+		if (lastActiveIndex >= index0) lastActiveIndex += length;
+		resetPendingIndexes();
+		
+		rowHeights.rowsInserted(index0, inserted);
+		if (rowIndexValid) {
+			//Entries of the shifted rows are recognized as outdated by indexOfRow
+			for (int i = 0; i < length; i++) {
+				Integer first = rowIndex.get(inserted.get(i));
+				if (first == null || first >= index0) {
+					rowIndex.put(inserted.get(i), index0 + i);
+				}
+			}
+		}
+		if (virtualized) {
+			Map<V, T> reusablePanels = detachVirtualWindow();
+			rows.addAll(index0, inserted);
+			panels.addAll(index0, Collections.nCopies(length, (T) null));
+			ensureForcedSelection();
+			attachVirtualWindow(reusablePanels);
+		} else {
+			rows.addAll(index0, inserted);
+			panels.addAll(index0, newPanels);
+			ensureForcedSelection();
+			for (int i = 0; i < length; i++) {
+				T panel = newPanels.get(i);
+				innerPanel.add(panel, index0 + i);
+				paintPanelSelection(panel, isRowSelected(index0 + i));
+				panel.updateComponents(panel.selected());
+			}
+			for (int i = index0; i < panels.size(); i++) {
+				panels.get(i).setIndex(i);
+			}
+		}
+		recordChange(DPanelListEvent.Type.ADDED, index0, index1);
+		selectionModel.setValueIsAdjusting(false);
+		finishModelChange(true);
+	}
+	
+	/**
+	 * Removes the panels of elements removed from the model that occupied the range [index0, index1].
+	 * Falls back to {@link #refresh()} if the rows are out of sync with the model.
+	 */
+	private void rowsRemoved(int index0, int index1) {
+		int length = index1 - index0 + 1;
+		synchronized (objects) {
+			if (index0 < 0 || index1 >= rows.size() || objects.size() != rows.size() - length) {
+				refresh();
+				return;
+			}
+		}
+		
+		selectionModel.setValueIsAdjusting(true);
+		selectionModel.removeIndexInterval(index0, index1);
+		if (lastActiveIndex > index1) {
+			lastActiveIndex -= length;
+		} else if (lastActiveIndex >= index0) {
+			lastActiveIndex = -1;
+		}
+		resetPendingIndexes();
+		int anchorShift = getRemovedHeightAboveView(index0, index1);
+		rowHeights.rowsRemoved(index0, index1, rows.subList(index0, index1 + 1));
+		for (int i = index0; i <= index1; i++) {
+			rowLayout.rowDiscarded(rows.get(i));
+		}
+		
+		if (virtualized) {
+			Map<V, T> reusablePanels = detachVirtualWindow();
+			rows.subList(index0, index1 + 1).clear();
+			panels.subList(index0, index1 + 1).clear();
+			ensureForcedSelection();
+			attachVirtualWindow(reusablePanels);
+		} else {
+			for (int i = index1; i >= index0; i--) {
+				panels.get(i).setIndex(-1);
+				innerPanel.remove(i);
+			}
+			rows.subList(index0, index1 + 1).clear();
+			panels.subList(index0, index1 + 1).clear();
+			for (int i = index0; i < panels.size(); i++) {
+				panels.get(i).setIndex(i);
+			}
+			if (ensureForcedSelection()) {
+				paintPanelSelection(panels.get(0), true);
+			}
+		}
+		recordChange(DPanelListEvent.Type.REMOVED, index0, index1);
+		selectionModel.setValueIsAdjusting(false);
+		finishModelChange(true);
+		if (anchorShift > 0) {
+			Point position = getViewport().getViewPosition();
+			getViewport().setViewPosition(new Point(position.x, Math.max(0, position.y - anchorShift)));
+		}
+	}
+	
+	/**
+	 * Returns the height the rows [index0, index1] including their gaps occupy if they are entirely above the viewport, otherwise 0.
+	 * Removing such rows shifts the view position by this height so that the visible rows stay in place.
+	 * A view at the end of the list is left alone to keep following the newest rows, for example with a {@link net.dudss.dcomponents.misc.SmartScroller}.
+	 */
+	private int getRemovedHeightAboveView(int index0, int index1) {
+		Rectangle view = getViewport().getViewRect();
+		if (view.y <= 0 || view.y + view.height >= innerPanel.getHeight()) return 0;
+		if (gridMode) {
+			//The cells of the first visible grid row move back by the number of removed cells
+			int visible = rowLayout.rowAtY(innerPanel, view.y);
+			if (index1 >= visible) return 0;
+			return getRowBounds(visible).y - getRowBounds(visible - (index1 - index0 + 1)).y;
+		}
+		Rectangle last = getRowBounds(index1);
+		if (last.y + last.height > view.y) return 0;
+		int end = index1 + 1 < rows.size() ? getRowBounds(index1 + 1).y : last.y + last.height + gap;
+		return end - getRowBounds(index0).y;
+	}
+	
+	/**
+	 * Updates the panels of elements replaced or changed in the model in the range [index0, index1].
+	 * Replaced elements get a new panel, otherwise only {@link DPanelListItem#updateComponents(boolean)} is called.
+	 */
+	private void rowsChanged(int index0, int index1) {
+		List<V> changed;
+		synchronized (objects) {
+			if (index0 < 0 || index1 >= rows.size() || objects.size() != rows.size()) {
+				refresh();
+				return;
+			}
+			changed = new ArrayList<>(objects.subList(index0, index1 + 1));
+		}
+		if (typeAheadKey != null) {
+			//The keys of the changed elements may be different now
+			typeAheadChanged.addAll(changed);
+		}
+		
+		boolean replaced = false;
+		for (int i = index0; i <= index1; i++) {
+			V object = changed.get(i - index0);
+			T panel = panels.get(i);
+			rowLayout.rowDiscarded(rows.get(i));
+			if (rows.get(i) != object) { // Object comparison
+				replaced = true;
+				if (panel != null) {
+					if (virtualized) {
+						hidePanel(panel);
+						panel.rebind(object);
+					} else {
+						T newPanel = createPanel(object);
+						if (newPanel == null) {
+							refresh();
+							return;
+						}
+						panel.setIndex(-1);
+						hidePanel(panel);
+						innerPanel.remove(i);
+						innerPanel.add(newPanel, i);
+						panels.set(i, newPanel);
+						newPanel.setIndex(i);
+						panel = newPanel;
+					}
+					paintPanelSelection(panel, isRowSelected(i));
+				}
+				rowHeights.rowReplaced(i, rows.get(i), object);
+				rows.set(i, object);
+				if (rowIndexValid) {
+					Integer first = rowIndex.get(object);
+					if (first == null || first > i) {
+						rowIndex.put(object, i);
+					}
+				}
+			}
+			rowHeights.invalidate(object);
+			if (panel != null) {
+				panel.updateComponents(panel.selected());
+			}
+		}
+		recordChange(DPanelListEvent.Type.UPDATED, index0, index1);
+		finishModelChange(replaced);
+	}
+	
+	/**
+	 * Moves the panels of the elements in the range [index0, index1] so that the first of them is at the target index.
+	 * Falls back to {@link #refresh()} if the rows are out of sync with the model.
+	 */
+	private void rowsMoved(int index0, int index1, int target) {
+		int length = index1 - index0 + 1;
+		synchronized (objects) {
+			boolean inSync = index0 >= 0 && index1 < rows.size() && target >= 0 && target + length <= rows.size() && objects.size() == rows.size();
+			for (int i = 0; inSync && i < length; i++) {
+				inSync = objects.get(target + i) == rows.get(index0 + i); // Object comparison
+			}
+			if (!inSync) {
+				refresh();
+				return;
+			}
+		}
+		if (index0 == target) return;
+		
+		BitSet selection = getSelectionBits();
+		BitSet movedSelection = selection.get(index0, index1 + 1);
+		selection.clear(index0, index1 + 1);
+		shiftBits(selection, index1 + 1, -length);
+		shiftBits(selection, target, length);
+		for (int i = movedSelection.nextSetBit(0); i != -1; i = movedSelection.nextSetBit(i + 1)) {
+			selection.set(target + i);
+		}
+		selectionModel.setValueIsAdjusting(true);
+		setSelectionBits(selection);
+		if (lastActiveIndex >= index0 && lastActiveIndex <= index1) {
+			lastActiveIndex += target - index0;
+		} else if (lastActiveIndex != -1) {
+			if (lastActiveIndex > index1) lastActiveIndex -= length;
+			if (lastActiveIndex >= target) lastActiveIndex += length;
+		}
+		resetPendingIndexes();
+		
+		rowHeights.rowsMoved(index0, index1, target);
+		if (virtualized) {
+			Map<V, T> reusablePanels = detachVirtualWindow();
+			moveBlock(rows, index0, index1, target);
+			moveBlock(panels, index0, index1, target);
+			attachVirtualWindow(reusablePanels);
+		} else {
+			moveBlock(rows, index0, index1, target);
+			moveBlock(panels, index0, index1, target);
+			int last = Math.max(index1, target + length - 1);
+			for (int i = Math.min(index0, target); i <= last; i++) {
+				T panel = panels.get(i);
+				innerPanel.setComponentZOrder(panel, i);
+				panel.setIndex(i);
+			}
+		}
+		int shift = target < index0 ? length : -length;
+		recordChange(new DPanelListEvent.Change(DPanelListEvent.Type.MOVED, Math.min(index0, target), Math.max(index1, target + length - 1),
+				i -> i >= index0 && i <= index1 ? target + i - index0 : i + shift));
+		selectionModel.setValueIsAdjusting(false);
+		finishModelChange(true);
+	}
+	
+	private static <E> void moveBlock(List<E> list, int index0, int index1, int target) {
+		List<E> range = list.subList(index0, index1 + 1);
+		List<E> block = new ArrayList<>(range);
+		range.clear();
+		list.addAll(target, block);
+	}
+	
+	/**
+	 * Moves the bits at and after the specified index by delta. The destination range must be clear.
+	 */
+	private static void shiftBits(BitSet bits, int from, int delta) {
+		int end = bits.length();
+		if (from >= end) return;
+		BitSet tail = bits.get(from, end);
+		bits.clear(from, end);
+		for (int i = tail.nextSetBit(0); i != -1; i = tail.nextSetBit(i + 1)) {
+			bits.set(from + i + delta);
+		}
+	}
+	
+	/**
+	 * Forgets row indexes of an ongoing mouse gesture after the rows changed under it.
+	 */
+	private void resetPendingIndexes() {
+		targetIndex = -1;
+		indexToDeselectOnRelease = -1;
+		indexToSelectOnRelease = -1;
+	}
+	
+	/**
+	 * Selects the first row if the selection is empty and the selection mode requires a selected row.
+	 * @return Whether the first row got selected.
+	 */
+	private boolean ensureForcedSelection() {
+		if (selectionModel.isSelectionEmpty() && selectionMode == SelectionMode.SELECTION_FORCED && rows.size() > 0) {
+			selectionModel.setSelectionInterval(0, 0);
+			return true;
+		}
+		return false;
+	}
+	
+	private void finishModelChange(boolean structureChanged) {
+		revalidateRows();
+		if (structureChanged) {
+			fireStructureListener(generateEvent(STRUCTURE_CHANGED));
+		}
+	}
+	
+	/**
+	 * Makes sure exactly the rows inside the viewport and the overscan are backed by panels.
+	 * @param reusablePanels Optional panels mapped to the objects they are displaying that should be preferred over the pool.
+	 * Used panels are removed from the map.
+	 */
+	private void updateVirtualWindow(Map<V, T> reusablePanels) {
+		if (!virtualized) return;
+		rowOffsets.invalidate();
+		int rowCount = rows.size();
+		int first = 0;
+		int last = -1;
+		if (rowCount > 0) {
+			if (gridMode) {
+				ensureCellSize(reusablePanels);
+			} else {
+				ensureVirtualRowHeight(reusablePanels);
+			}
+			Rectangle view = getViewport().getViewRect();
+			//The overscan counts grid rows, rowAtY returns the first cell of a grid row
+			int columns = rowLayout.getColumns(innerPanel);
+			first = Math.max(0, rowLayout.rowAtY(innerPanel, view.y) - overscan * columns);
+			last = (int) Math.min(rowCount - 1, rowLayout.rowAtY(innerPanel, view.y + view.height) + (long) (overscan + 1) * columns - 1);
+		}
+		
+		//Recycle panels that are no longer inside the window
+		for (int i = windowFirst; i <= Math.min(windowLast, rowCount - 1); i++) {
+			if (i < first || i > last) {
+				T panel = panels.set(i, null);
+				if (panel != null) {
+					recyclePanel(panel);
+				}
+			}
+		}
+		windowFirst = first;
+		windowLast = last;
+		
+		for (int i = first; i <= last; i++) {
+			if (panels.get(i) == null) {
+				bindRow(i, reusablePanels);
+			}
+		}
+	}
+	
+	/**
+	 * Backs a row with a panel, either one displaying the same object, a pooled one or a newly created one.
+	 */
+	private T bindRow(int index, Map<V, T> reusablePanels) {
+		V object = rows.get(index);
+		T panel = reusablePanels != null ? reusablePanels.remove(object) : null;
+		if (panel == null) {
+			panel = panelPool.poll();
+			if (panel != null) {
+				panel.rebind(object);
+			} else {
+				panel = createPanel(object);
+				if (panel == null) return null;
+				innerPanel.add(panel);
+			}
+		}
+		panel.setVisible(true);
+		panels.set(index, panel);
+		panel.setIndex(index);
+		paintPanelSelection(panel, isRowSelected(index));
+		panel.updateComponents(panel.selected());
+		return panel;
+	}
+	
+	private void recyclePanel(T panel) {
+		hidePanel(panel);
+		panel.setIndex(-1);
+		panel.unselect();
+		panel.setVisible(false);
+		panelPool.push(panel);
+	}
+	
+	/**
+	 * Removes pooled panels that exceed the current window size from the component.
+	 */
+	private void trimPanelPool() {
+		int maxPoolSize = Math.max(0, windowLast - windowFirst + 1);
+		while (panelPool.size() > maxPoolSize) {
+			innerPanel.remove(panelPool.pollLast());
+		}
+	}
+	
+	/**
+	 * Removes all panels, including pooled ones, from the component.
+	 */
+	private void releasePanels() {
+		hideAllPanels();
+		for (T panel : panels) {
+			if (panel != null) panel.setIndex(-1);
+		}
+		panelPool.clear();
+		windowFirst = 0;
+		windowLast = -1;
+		innerPanel.removeAll();
+	}
+	
+	/**
+	 * Measures the first row to get an estimated height for the rows before any of them has been laid out.
+	 */
+	private void ensureVirtualRowHeight(Map<V, T> reusablePanels) {
+		if (fixedRowHeight > 0 || rowHeights.hasMeasurements()) return;
+		T panel = panels.get(0);
+		if (panel != null) {
+			rowHeights.setDefaultEstimate(panel.getPreferredSize().height);
+			return;
+		}
+		//Measure the first row and return the panel to the pool, the window decides which rows need a panel
+		panel = bindRow(0, reusablePanels);
+		if (panel != null) {
+			rowHeights.setDefaultEstimate(panel.getPreferredSize().height);
+			panels.set(0, null);
+			recyclePanel(panel);
+		}
+	}
+	
+	/**
+	 * Measures the preferred size of the first panel to get the cell size in grid mode, unless it is set explicitly.
+	 */
+	private void ensureCellSize(Map<V, T> reusablePanels) {
+		if ((gridCellWidth > 0 && gridCellHeight > 0) || measuredCellSize != null) return;
+		T panel = panels.get(0);
+		if (panel != null) {
+			measuredCellSize = panel.getPreferredSize();
+			return;
+		}
+		panel = bindRow(0, reusablePanels);
+		if (panel != null) {
+			measuredCellSize = panel.getPreferredSize();
+			panels.set(0, null);
+			recyclePanel(panel);
+		}
+	}
+	
+	int getCellWidth() {
+		if (gridCellWidth > 0) return gridCellWidth;
+		return measuredCellSize != null ? Math.max(1, measuredCellSize.width) : DEFAULT_CELL_SIZE;
+	}
+	
+	int getCellHeight() {
+		if (gridCellHeight > 0) return gridCellHeight;
+		return measuredCellSize != null ? Math.max(1, measuredCellSize.height) : DEFAULT_CELL_SIZE;
+	}
+	
+	/**
+	 * Returns the fixed row height or the estimated height of rows that were not measured yet.
+	 */
+	int getVirtualRowHeight() {
+		if (virtualized && fixedRowHeight > 0) return fixedRowHeight;
+		return rowHeights.getEstimate();
+	}
+	
+	/**
+	 * Returns the row height cache prepared for the rows and the row width or null if all rows have the fixed height or the list is a grid.
+	 */
+	RowHeightCache getRowHeights(int width) {
+		if (gridMode || (virtualized && fixedRowHeight > 0)) return null;
+		rowHeights.setWidth(width);
+		rowHeights.ensure(rows);
+		return rowHeights;
+	}
+	
+	/**
+	 * Called by the layout after newly measured rows changed the height of the list.
+	 * The window is updated afterwards since other rows might be inside the viewport now.
+	 */
+	void rowHeightsChanged() {
+		if (rowHeightsUpdateScheduled) return;
+		rowHeightsUpdateScheduled = true;
+		SwingUtilities.invokeLater(() -> {
+			rowHeightsUpdateScheduled = false;
+			if (virtualized) {
+				updateVirtualWindow(null);
+				trimPanelPool();
+			}
+			innerPanel.revalidate();
+			innerPanel.repaint();
+		});
+	}
+	
+	V getRowObject(int index) {
+		return rows.get(index);
+	}
+	
+	int getRowCount() {
+		return rows.size();
+	}
+	
+	T getRowPanel(int index) {
+		return panels.get(index);
+	}
+	
+	int firstMaterializedRow() {
+		return virtualized ? windowFirst : 0;
+	}
+	
+	int lastMaterializedRow() {
+		return virtualized ? Math.min(windowLast, panels.size() - 1) : panels.size() - 1;
+	}
+	
+	int getGap() {
+		return gap;
+	}
+	
+	/**
+	 * Returns the sections with their anchor rows up to date or null if the list is not sectioned.
+	 */
+	SectionIndex getSections() {
+		if (sectionKey == null) return null;
+		sectionIndex.ensureAnchors(rows, sectionKey);
+		return sectionIndex;
+	}
+	
+	/**
+	 * Returns the height of a section header, the preferred height of the header renderer.
+	 */
+	int getSectionHeaderHeight() {
+		if (sectionHeaderHeight < 0) {
+			Object key = sectionIndex.isEmpty() ? "" : sectionIndex.get(0).key;
+			Component header = sectionRenderer.getSectionRendererComponent(this, key, 0, false);
+			sectionHeaderHeight = Math.max(1, header.getPreferredSize().height);
+		}
+		return sectionHeaderHeight;
+	}
+	
+	int getSideGap() {
+		return sideGap;
+	}
+	
+	private void initUI() {			
+		setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+		setAutoscrolls(true);
+		getVerticalScrollBar().setUnitIncrement(16);
+		setScrollbarWidth(12);
+		
+		innerPanel = new CustomListInnerPanel();
+		innerPanel.setBackground(defaultBackground);
+		rowLayout = new DPanelListLayout(this);
+		innerPanel.setLayout(rowLayout);
+
+		setViewportView(innerPanel);
+		getViewport().addChangeListener(e -> {
+			if (virtualized) {
+				updateVirtualWindow(null);
+				trimPanelPool();
+				innerPanel.validate();
+				innerPanel.repaint();
+			} else if (!rowLayout.coversView(getViewport().getViewRect())) {
+				//Lay out the rows that came close to the viewport
+				innerPanel.invalidate();
+				innerPanel.validate();
+			}
+			if (sectionKey != null) {
+				repaintStickyHeader();
+			}
+			scheduleVisibilityUpdate();
+		});
+		//Paints the section headers, it is never laid out
+		add(sectionRendererPane);
+		setMinimumSize(new Dimension(1, 1));
+		//add(scrollPane, "cell 0 0, grow, wmin 1"); //wmin 1 to fix mig layout shrinking issues when using text wrap components (eg. text area)
+
+		//Only runs while a drag is inside one of the scroll bounds, see updateAutoscroll()
+		tweenTimer = new Timer(10, new ActionListener() {
+		    @Override
+			public void actionPerformed(ActionEvent evt) {
+		    	autoscroll();
+		    }    
+		});
+		
+		visibilityTimer = new Timer(VISIBILITY_DELAY, e -> updateShownRows());
+		visibilityTimer.setRepeats(false);
+		
+		postTimer = new Timer(POST_DELAY, e -> drainPostedOperations());
+		postTimer.setRepeats(false);
+		//A coalescing timer drops a firing that happens while the previous batch is still being applied
+		postTimer.setCoalesce(false);
+
+		typeAheadTimer = new Timer(TYPE_AHEAD_REBUILD_DELAY, e -> buildTypeAheadIndex());
+		typeAheadTimer.setRepeats(false);
+
+		DPanelListMouseListener mouseListener = new DPanelListMouseListener();
+		innerPanel.addMouseMotionListener(mouseListener);
+		innerPanel.addMouseListener(mouseListener);
+		innerPanel.addKeyListener(new DPanelListKeyListener());
+		innerPanel.setFocusable(true);
+		installKeyboardActions();
+	}
+	
+	/**
+	 * Binds the navigation keys of the inner panel, using the action names of {@link JList}.
+	 */
+	private void installKeyboardActions() {
+		InputMap inputMap = innerPanel.getInputMap(JComponent.WHEN_FOCUSED);
+		ActionMap actionMap = innerPanel.getActionMap();
+		bindNavigation(inputMap, actionMap, KeyEvent.VK_UP, "selectPreviousRow", Navigation.PREVIOUS_ROW);
+		bindNavigation(inputMap, actionMap, KeyEvent.VK_DOWN, "selectNextRow", Navigation.NEXT_ROW);
+		bindNavigation(inputMap, actionMap, KeyEvent.VK_LEFT, "selectPreviousColumn", Navigation.PREVIOUS_COLUMN);
+		bindNavigation(inputMap, actionMap, KeyEvent.VK_RIGHT, "selectNextColumn", Navigation.NEXT_COLUMN);
+		bindNavigation(inputMap, actionMap, KeyEvent.VK_PAGE_UP, "scrollUp", Navigation.PREVIOUS_PAGE);
+		bindNavigation(inputMap, actionMap, KeyEvent.VK_PAGE_DOWN, "scrollDown", Navigation.NEXT_PAGE);
+		bindNavigation(inputMap, actionMap, KeyEvent.VK_HOME, "selectFirstRow", Navigation.FIRST);
+		bindNavigation(inputMap, actionMap, KeyEvent.VK_END, "selectLastRow", Navigation.LAST);
+		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_A, InputEvent.CTRL_DOWN_MASK), "selectAll");
+		actionMap.put("selectAll", new AbstractAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (selectionMode == SelectionMode.MULTI_SELECTION && !rows.isEmpty()) {
+					selectAll();
+					fireSelectionListener();
+				}
+			}
+		});
+	}
+	
+	private void bindNavigation(InputMap inputMap, ActionMap actionMap, int keyCode, String name, Navigation navigation) {
+		inputMap.put(KeyStroke.getKeyStroke(keyCode, 0), name);
+		inputMap.put(KeyStroke.getKeyStroke(keyCode, InputEvent.SHIFT_DOWN_MASK), name + "ExtendSelection");
+		actionMap.put(name, new NavigationAction(navigation, false));
+		actionMap.put(name + "ExtendSelection", new NavigationAction(navigation, true));
+	}
+	
+	/**
+	 * Starts the autoscroll timer when a drag enters the upper or lower scroll bounds and stops it as soon as it leaves them.
+	 */
+	private void updateAutoscroll() {
+		boolean active = scrollDown != scrollUp;
+		if (active && !tweenTimer.isRunning()) {
+			lastScrollNanos = System.nanoTime();
+			scrollRemainder = 0;
+			tweenTimer.start();
+		} else if (!active && tweenTimer.isRunning()) {
+			tweenTimer.stop();
+		}
+	}
+	
+	/**
+	 * Scrolls the viewport by the distance corresponding to the time elapsed since the last call.
+	 */
+	private void autoscroll() {
+		if (scrollDown == scrollUp) {
+			tweenTimer.stop();
+			return;
+		}
+		long now = System.nanoTime();
+		long elapsed = Math.min(now - lastScrollNanos, MAX_SCROLL_ELAPSED_NANOS);
+		lastScrollNanos = now;
+		
+		scrollRemainder += scrollDragStep * acceleration * elapsed / SCROLL_STEP_NANOS;
+		int distance = (int) scrollRemainder;
+		if (distance == 0) return;
+		scrollRemainder -= distance;
+		
+		JViewport viewPort = getViewport();
+		if (viewPort != null) {
+			Rectangle viewRect = viewPort.getViewRect();
+			int previousY = viewRect.y;
+			viewRect.y = scrollDown ? distance : -distance;
+			viewPort.scrollRectToVisible(viewRect);
+			//The cursor keeps its position on screen while the rows move under it
+			mousePos.y += viewPort.getViewPosition().y - previousY;
+			updateDragFeedback();
+		}
+	}
+	
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		if (metrics != null) {
+			registerMetrics();
+		}
+		if (typeAheadKey != null && typeAheadBuild == null && typeAheadIndexVersion != typeAheadVersion) {
+			//The rebuild was cancelled by removeNotify
+			typeAheadTimer.start();
+		}
+	}
+	
+	@Override
+	public void removeNotify() {
+		super.removeNotify();
+		scrollDown = false;
+		scrollUp = false;
+		tweenTimer.stop();
+		visibilityTimer.stop();
+		visibilityPendingNanos = -1;
+		typeAheadTimer.stop();
+		if (metrics != null) {
+			metrics.unregister();
+		}
+		if (postDrainScheduled.get()) {
+			//Posted operations modify the displayed list, so they are applied right away instead of being dropped
+			postTimer.stop();
+			drainPostedOperations();
+		}
+		hideAllPanels();
+	}
+	
+	/**
+	 * Updates the shown rows once the viewport stopped moving for a short time. While it keeps moving,
+	 * for example during a fling, the rows are still updated at a low rate so only a few of the rows passed by are shown.
+	 */
+	private void scheduleVisibilityUpdate() {
+		if (visibilityTimer == null) return;
+		long now = System.nanoTime();
+		if (visibilityPendingNanos == -1) {
+			visibilityPendingNanos = now;
+			visibilityTimer.restart();
+		} else if (now - visibilityPendingNanos < MAX_VISIBILITY_DELAY_NANOS) {
+			visibilityTimer.restart();
+		}
+		//Otherwise the pending update is overdue and the timer is left to fire
+	}
+	
+	/**
+	 * Notifies panels that entered or left the viewport extended by the visibility overscan.
+	 * Panels are hidden first so that resources are released before new loads start.
+	 */
+	private void updateShownRows() {
+		visibilityTimer.stop();
+		visibilityPendingNanos = -1;
+		if (panels == null) return;
+		
+		int first = 0;
+		int last = -1;
+		Rectangle view = getViewport().getViewRect();
+		if (gridMode) {
+			if (!rows.isEmpty() && view.width > 0 && view.height > 0) {
+				int columns = rowLayout.getColumns(innerPanel);
+				first = Math.max(firstMaterializedRow(), rowLayout.rowAtY(innerPanel, view.y) - visibilityOverscan * columns);
+				last = (int) Math.min(lastMaterializedRow(), rowLayout.rowAtY(innerPanel, view.y + view.height - 1) + (long) (visibilityOverscan + 1) * columns - 1);
+			}
+		} else {
+			RowOffsetIndex offsets = getRowOffsets();
+			if (!offsets.isEmpty() && view.width > 0 && view.height > 0) {
+				int top = offsets.rowAtY(view.y);
+				int bottom = offsets.rowAtY(view.y + view.height - 1);
+				if (bottom != -1) {
+					first = Math.max(offsets.getFirst(), (top == -1 ? offsets.getFirst() : top) - visibilityOverscan);
+					last = Math.min(offsets.getLast(), bottom + visibilityOverscan);
+				}
+			}
+		}
+		
+		List<T> hidden = new ArrayList<>();
+		for (T panel : shownPanels) {
+			int index = panel.index();
+			if (index < first || index > last || index >= panels.size() || panels.get(index) != panel) {
+				hidden.add(panel);
+			}
+		}
+		for (T panel : hidden) {
+			hidePanel(panel);
+		}
+		for (int i = first; i <= last && i < panels.size(); i++) {
+			T panel = panels.get(i);
+			if (panel != null && shownPanels.add(panel)) {
+				panel.setShown(true);
+			}
+		}
+	}
+	
+	private void hidePanel(T panel) {
+		if (shownPanels.remove(panel)) {
+			panel.setShown(false);
+		}
+	}
+	
+	private void hideAllPanels() {
+		List<T> hidden = new ArrayList<>(shownPanels);
+		shownPanels.clear();
+		for (T panel : hidden) {
+			panel.setShown(false);
+		}
+	}
+	
+	/**
+	 * Finds the row and side the dragged rows would be dropped at, stores the row in {@link #targetIndex}.
+	 */
+	private DropStatus checkDropLocation() {
+		targetIndex = -1;
+		if (!dragging || lastActiveIndex == -1) {
+			return DropStatus.INVALID;
+		}
+		if (gridMode) {
+			return checkCellDropLocation(mousePos.x, mousePos.y);
+		}
+		DropStatus status = checkRowDropLocation(mousePos.x, mousePos.y);
+		if (status != DropStatus.INVALID && !isInSelectedSection(targetIndex)) {
+			targetIndex = -1;
+			return DropStatus.INVALID;
+		}
+		return status;
+	}
+	
+	/**
+	 * Stacked rows variant of {@link #checkDropLocation()}, the upper half of a row and the gap above it drop in front of the row.
+	 */
+	private DropStatus checkRowDropLocation(int x, int y) {
+		RowOffsetIndex offsets = getRowOffsets();
+		if (offsets.isEmpty()) {
+			return DropStatus.INVALID;
+		}
+		int index = offsets.rowAtY(y);
+		if (index == -1) {
+			//Special case for the gap above the first panel
+			if (offsets.getFirst() == 0 && lastActiveIndex != 0 && y >= offsets.getTop(0) - lastGap && offsets.containsX(x, sideGap)) {
+				targetIndex = 0;
+				return DropStatus.ABOVE;
+			}
+		} else if (y < offsets.getBottom(index)) {
+			if (panels.get(index) != null && offsets.containsX(x, 0)) {
+				targetIndex = index;
+				int top = offsets.getTop(index);
+				return y < top + (offsets.getBottom(index) - top) / 2 ? DropStatus.ABOVE : DropStatus.BELOW;
+			}
+		} else if (offsets.containsX(x, sideGap)) {
+			//Gap below the panel, the last panel has a larger one
+			int gapBelow = index == panels.size() - 1 ? Math.max(gap, lastGap) : gap;
+			if (panels.get(index) != null && y < offsets.getBottom(index) + gapBelow) {
+				targetIndex = index;
+				return DropStatus.BELOW;
+			}
+		}
+		return DropStatus.INVALID;
+	}
+	
+	/**
+	 * Whether the row belongs to the section of the selected rows, always true unless the list is sectioned.
+	 * Sections are ranges of rows, so the first and the last selected row decide.
+	 */
+	private boolean isInSelectedSection(int index) {
+		SectionIndex sections = getSections();
+		if (sections == null || sections.isEmpty()) return true;
+		int section = sections.sectionOf(index);
+		return sections.sectionOf(selectionModel.getMinSelectionIndex()) == section && sections.sectionOf(selectionModel.getMaxSelectionIndex()) == section;
+	}
+	
+	/**
+	 * Grid mode variant of {@link #checkDropLocation()}, the left half of a cell and the gap left of it drop in front of the cell.
+	 */
+	private DropStatus checkCellDropLocation(int x, int y) {
+		if (rows.isEmpty()) {
+			return DropStatus.INVALID;
+		}
+		int index = rowLayout.cellAt(innerPanel, x, y, true);
+		if (index == -1) {
+			//Behind the last cell, in its grid row or in the last gap below it
+			int lastIndex = rows.size() - 1;
+			Rectangle last = getRowBounds(lastIndex);
+			boolean behind = y >= last.y && y < last.y + last.height + Math.max(gap, lastGap) && (x >= last.x + last.width || y >= last.y + last.height + gap);
+			if (!behind || panels.get(lastIndex) == null) {
+				return DropStatus.INVALID;
+			}
+			targetIndex = lastIndex;
+			return DropStatus.BELOW;
+		}
+		if (panels.get(index) == null) {
+			return DropStatus.INVALID;
+		}
+		targetIndex = index;
+		Rectangle bounds = getRowBounds(index);
+		return x < bounds.x + bounds.width / 2 ? DropStatus.ABOVE : DropStatus.BELOW;
+	}
+	
+	/**
+	 * Starts or ends the drag feedback and repaints the areas of the drag image and the drop indicator that changed.
+	 * Starting or ending a drag repaints the view once, since every gap shows the drop indicator while dragging.
+	 */
+	private void updateDragFeedback() {
+		boolean active = dragging && lastActiveIndex != -1;
+		if (active != dragFeedbackActive) {
+			dragFeedbackActive = active;
+			dragImage = active ? createDragImage() : null;
+			dragImageBounds = null;
+			dropIndicatorBounds = null;
+			innerPanel.repaint(getViewport().getViewRect());
+		}
+		if (!active) return;
+		
+		Rectangle imageBounds = null;
+		if (dragImage != null) {
+			int x = gridMode ? mousePos.x - dragImageWidth / 2 : rowLayout.getRowX(innerPanel);
+			imageBounds = new Rectangle(x, mousePos.y - dragImageAnchorY, dragImageWidth, dragImageHeight);
+		}
+		Rectangle dropBounds = getDropIndicatorBounds();
+		repaintChangedArea(dragImageBounds, imageBounds);
+		repaintChangedArea(dropIndicatorBounds, dropBounds);
+		dragImageBounds = imageBounds;
+		dropIndicatorBounds = dropBounds;
+	}
+	
+	private void repaintChangedArea(Rectangle previous, Rectangle current) {
+		if (previous == null ? current == null : previous.equals(current)) return;
+		if (previous != null) {
+			innerPanel.repaint(previous);
+		}
+		if (current != null) {
+			innerPanel.repaint(current);
+		}
+	}
+	
+	/**
+	 * Returns the gap highlighted as the drop location or null if the mouse is not over a valid drop location.
+	 */
+	private Rectangle getDropIndicatorBounds() {
+		DropStatus dropStatus = checkDropLocation();
+		if (dropStatus == DropStatus.INVALID) return null;
+		T panel = panels.get(targetIndex);
+		if (gridMode) {
+			//Gap left or right of the cell
+			int x = dropStatus == DropStatus.ABOVE ? panel.getX() - gap : panel.getX() + panel.getWidth();
+			return new Rectangle(x, panel.getY(), gap, panel.getHeight());
+		}
+		int y = dropStatus == DropStatus.ABOVE ? panel.getY() - gap : panel.getY() + panel.getHeight();
+		return new Rectangle(panel.getX() - sideGap, y, panel.getWidth() + sideGap * 2, gap);
+	}
+	
+	/**
+	 * Paints the selected rows that are backed by a panel into an image, stacked on top of each other and cut off at {@link #DRAG_IMAGE_MAX_HEIGHT}.
+	 * The image has the resolution of the screen so it stays sharp on HiDPI displays.
+	 * @return The image or null if no selected row has a visible panel.
+	 */
+	private BufferedImage createDragImage() {
+		List<T> dragged = new ArrayList<>();
+		int width = 0;
+		int height = 0;
+		int anchor = -1;
+		BitSet selection = getSelectionBits();
+		int last = lastMaterializedRow();
+		for (int i = selection.nextSetBit(firstMaterializedRow()); i != -1 && i <= last && height < DRAG_IMAGE_MAX_HEIGHT; i = selection.nextSetBit(i + 1)) {
+			T panel = panels.get(i);
+			if (panel == null || panel.getWidth() <= 0 || panel.getHeight() <= 0) continue;
+			if (i == lastActiveIndex) {
+				anchor = height + panel.getHeight() / 2;
+			}
+			dragged.add(panel);
+			width = Math.max(width, panel.getWidth());
+			height += panel.getHeight();
+		}
+		if (dragged.isEmpty()) return null;
+		height = Math.min(height, DRAG_IMAGE_MAX_HEIGHT);
+		
+		double scaleX = 1;
+		double scaleY = 1;
+		GraphicsConfiguration configuration = innerPanel.getGraphicsConfiguration();
+		if (configuration != null) {
+			AffineTransform transform = configuration.getDefaultTransform();
+			scaleX = transform.getScaleX();
+			scaleY = transform.getScaleY();
+		}
+		BufferedImage image = new BufferedImage((int) Math.ceil(width * scaleX), (int) Math.ceil(height * scaleY), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.scale(scaleX, scaleY);
+			int y = 0;
+			for (T panel : dragged) {
+				Graphics panelGraphics = g.create(0, y, panel.getWidth(), panel.getHeight());
+				try {
+					panel.paint(panelGraphics);
+				} finally {
+					panelGraphics.dispose();
+				}
+				y += panel.getHeight();
+			}
+		} finally {
+			g.dispose();
+		}
+		dragImageWidth = width;
+		dragImageHeight = height;
+		dragImageAnchorY = anchor != -1 ? Math.min(anchor, height) : dragged.get(0).getHeight() / 2;
+		return image;
+	}
+	
+	/**
+	 * Moves the elements at the specified indexes in front of the element at the target index, keeping their order.
+	 * <br><br>
+	 * The new order is computed in a single pass and applied to the list, the rows and the panels at once.
+	 * Selected elements stay selected and the structure listener receives a single {@link DPanelListMoveEvent} describing the move.
+	 * A {@link DefaultDPanelListModel} is permuted with {@link DefaultDPanelListModel#move(int[], int)},
+	 * other lists need to support {@link List#set(int, Object)}. Nothing is moved if some elements have no row because their panel could not be created.
+	 * @param sourceIndexes The indexes of the elements to move in any order.
+	 * @param targetIndex The index in front of which the elements are inserted, between 0 and the number of elements.
+	 * @throws UnsupportedOperationException If the list is a read-only model such as a {@link DPanelListView} or a {@link DPanelListStreamModel}.
+	 */
+	@SuppressWarnings("unchecked")
+	public void moveItems(int[] sourceIndexes, int targetIndex) {
+		if (!supportsMove()) {
+			throw new UnsupportedOperationException("The elements of a read-only model can't be moved");
+		}
+		if (sectionKey != null) {
+			moveSectionedItems(sourceIndexes, targetIndex);
+			return;
+		}
+		synchronized(objects) {
+			if (objects.size() != rows.size()) {
+				refresh();
+				//Elements whose panel could not be created have no row, row indexes can't be applied to the list
+				if (objects.size() != rows.size()) return;
+			}
+		}
+		if (targetIndex < 0 || targetIndex > rows.size()) {
+			throw new IndexOutOfBoundsException("Target index: " + targetIndex + ", size: " + rows.size());
+		}
+		int[] indexes = DPanelListMoveEvent.normalize(sourceIndexes, rows.size());
+		DPanelListMoveEvent move = new DPanelListMoveEvent(this, STRUCTURE_CHANGED, indexes, targetIndex);
+		if (!move.changesOrder()) return;
+		
+		structureVersion++;
+		ignoreModelEvents = true;
+		try {
+			synchronized(objects) {
+				if (objects instanceof DefaultDPanelListModel) {
+					((DefaultDPanelListModel<V>) objects).move(indexes, targetIndex);
+				} else {
+					move.applyTo(objects);
+				}
+			}
+		} finally {
+			ignoreModelEvents = false;
+		}
+		
+		BitSet selection = getSelectionBits();
+		BitSet movedSelection = new BitSet();
+		for (int i = selection.nextSetBit(0); i != -1; i = selection.nextSetBit(i + 1)) {
+			movedSelection.set(move.newIndexOf(i));
+		}
+		selectionModel.setValueIsAdjusting(true);
+		setSelectionBits(movedSelection);
+		if (lastActiveIndex != -1) {
+			lastActiveIndex = move.newIndexOf(lastActiveIndex);
+		}
+		resetPendingIndexes();
+		
+		if (virtualized) {
+			Map<V, T> reusablePanels = detachVirtualWindow();
+			move.applyTo(rows);
+			move.applyTo(panels);
+			rowHeights.invalidate();
+			attachVirtualWindow(reusablePanels);
+		} else {
+			move.applyTo(rows);
+			move.applyTo(panels);
+			reorderComponents(move.getChangedIndex0(), move.getChangedIndex1(), move.getFirstIndex() < indexes[0]);
+		}
+		recordChange(new DPanelListEvent.Change(DPanelListEvent.Type.MOVED, move.getChangedIndex0(), move.getChangedIndex1(), move::newIndexOf));
+		selectionModel.setValueIsAdjusting(false);
+		revalidateAndRepaint();
+		fireStructureListener(move);
+	}
+	
+	/**
+	 * Whether the elements can be moved by {@link #moveItems(int[], int)}. Models other than {@link DefaultDPanelListModel}
+	 * are read-only {@link List}s, see {@link AbstractDPanelListModel}.
+	 */
+	private boolean supportsMove() {
+		return objects != null && (objects instanceof DefaultDPanelListModel || !(objects instanceof AbstractDPanelListModel));
+	}
+	
+	/**
+	 * Whether dragging the selected rows reorders them, drag-and-drop is ignored for read-only models.
+	 */
+	private boolean isDragReorderEnabled() {
+		return enableDragAndDrop && supportsMove();
+	}
+	
+	/**
+	 * Sectioned variant of {@link #moveItems(int[], int)}. Rows of collapsed sections are missing from the rows, so the row indexes
+	 * are translated to indexes of the list before moving the elements, the rows are refreshed afterwards.
+	 */
+	private void moveSectionedItems(int[] sourceIndexes, int targetIndex) {
+		if (targetIndex < 0 || targetIndex > rows.size()) {
+			throw new IndexOutOfBoundsException("Target index: " + targetIndex + ", size: " + rows.size());
+		}
+		int[] indexes = DPanelListMoveEvent.normalize(sourceIndexes, rows.size());
+		DPanelListMoveEvent move = new DPanelListMoveEvent(this, STRUCTURE_CHANGED, indexes, targetIndex);
+		if (!move.changesOrder()) return;
+		
+		ignoreModelEvents = true;
+		try {
+			synchronized(objects) {
+				int[] listIndexes = getListIndexes();
+				if (listIndexes != null) {
+					int[] sources = new int[indexes.length];
+					for (int i = 0; i < indexes.length; i++) {
+						sources[i] = listIndexes[indexes[i]];
+					}
+					int target = targetIndex < rows.size() ? listIndexes[targetIndex] : listIndexes[rows.size() - 1] + 1;
+					if (objects instanceof DefaultDPanelListModel) {
+						((DefaultDPanelListModel<V>) objects).move(sources, target);
+					} else {
+						new DPanelListMoveEvent(this, STRUCTURE_CHANGED, sources, target).applyTo(objects);
+					}
+				}
+			}
+		} finally {
+			ignoreModelEvents = false;
+		}
+		refresh(false);
+		fireStructureListener(move);
+	}
+	
+	/**
+	 * Returns the index in the list of every row, rows being a subsequence of the list in sectioned mode.
+	 * @return The indexes or null if the rows are out of sync with the list.
+	 */
+	private int[] getListIndexes() {
+		int[] listIndexes = new int[rows.size()];
+		int row = 0;
+		for (int i = 0; i < objects.size() && row < rows.size(); i++) {
+			if (objects.get(i) == rows.get(row)) { //Object comparison
+				listIndexes[row++] = i;
+			}
+		}
+		return row == rows.size() ? listIndexes : null;
+	}
+	
+	/**
+	 * Brings the components of the inner panel in the range [index0, index1] into the order of the panels.
+	 * Only misplaced components are moved, walking towards the side the moved panels came from so that each of them is moved once.
+	 * @param forward Whether the panels were moved towards the top of the list.
+	 */
+	private void reorderComponents(int index0, int index1, boolean forward) {
+		for (int n = 0; n <= index1 - index0; n++) {
+			int i = forward ? index0 + n : index1 - n;
+			T panel = panels.get(i);
+			if (innerPanel.getComponent(i) != panel) {
+				innerPanel.setComponentZOrder(panel, i);
+			}
+			panel.setIndex(i);
+		}
+	}
+	
+	/**
+	 * Call the {@link DPanelListItem#updateComponents(boolean)} method on all item panels.
+	 */
+	public void updatePanelComponents() {
+		for (int i = firstMaterializedRow(); i <= lastMaterializedRow(); i++) {
+			T panel = panels.get(i);
+			if (panel == null) continue;
+			panel.updateComponents(panel.selected());
+			panel.revalidate();
+			panel.repaint();
+		}
+	}
+	
+	/**
+	 * Updates the panel of a single object on the next event dispatch thread turn.
+	 * <br><br>
+	 * The panel is found through an identity index, so the cost does not depend on the number of rows.
+	 * Marking the same object several times before the update happens results in a single {@link DPanelListItem#updateComponents(boolean)} call.
+	 * Objects that are not displayed or whose rows are currently not backed by a panel are ignored.
+	 * This method can be called from any thread.
+	 * @param item The object whose panel should be updated.
+	 */
+	public void refreshItem(V item) {
+		synchronized (dirtyItems) {
+			dirtyItems.add(item);
+			if (dirtyFlushScheduled) return;
+			dirtyFlushScheduled = true;
+		}
+		SwingUtilities.invokeLater(this::flushDirtyItems);
+	}
+	
+	/**
+	 * Updates the panels of the objects at the specified row indexes on the next event dispatch thread turn, see {@link #refreshItem(Object)}.
+	 * Indexes outside of the list are ignored. Must be called on the event dispatch thread.
+	 * @param indexes The row indexes.
+	 */
+	public void refreshIndexes(int... indexes) {
+		for (int index : indexes) {
+			if (index >= 0 && index < rows.size()) {
+				refreshItem(rows.get(index));
+			}
+		}
+	}
+	
+	/**
+	 * Updates the panels of the objects in the row range [index0, index1] on the next event dispatch thread turn, see {@link #refreshItem(Object)}.
+	 * Must be called on the event dispatch thread.
+	 * @param index0 The first row index.
+	 * @param index1 The last row index (inclusive).
+	 */
+	public void refreshRange(int index0, int index1) {
+		int last = Math.min(Math.max(index0, index1), rows.size() - 1);
+		for (int i = Math.max(0, Math.min(index0, index1)); i <= last; i++) {
+			refreshItem(rows.get(i));
+		}
+	}
+	
+	private void flushDirtyItems() {
+		List<V> items;
+		synchronized (dirtyItems) {
+			items = new ArrayList<>(dirtyItems);
+			dirtyItems.clear();
+			dirtyFlushScheduled = false;
+		}
+		for (V item : items) {
+			rowHeights.invalidate(item);
+			int index = indexOfRow(item);
+			if (index == -1) continue;
+			T panel = panels.get(index);
+			if (panel == null) continue;
+			panel.updateComponents(panel.selected());
+			panel.revalidate();
+			panel.repaint();
+		}
+	}
+	
+	/**
+	 * Queues a modification of the displayed list. This method can be called from any thread and never blocks.
+	 * <br><br>
+	 * Posted operations are applied on the event dispatch thread at most once per frame, in the order they were posted.
+	 * Operations still pending when the list is removed from its parent are applied right away.
+	 * Consecutive appends are applied with a single {@link List#addAll(Collection)} and consecutive removals by element in a single pass.
+	 * A {@link DPanelListModel} updates the affected rows through its events as long as the batch is small,
+	 * a plain list or a large batch is applied with a single {@link #refresh()}.
+	 * <br><br>
+	 * The displayed list has to be mutable. Operations that fail are passed to the panel error handler, see {@link #setPanelErrorHandler(BiConsumer)}.
+	 * @param operation The operation, see the factory methods of {@link DPanelListOperation}.
+	 */
+	public void post(DPanelListOperation<V> operation) {
+		postedOperations.add(operation);
+		schedulePostDrain();
+	}
+	
+	/**
+	 * Queues several modifications of the displayed list at once, see {@link #post(DPanelListOperation)}.
+	 */
+	public void post(Collection<DPanelListOperation<V>> operations) {
+		if (operations.isEmpty()) return;
+		postedOperations.addAll(operations);
+		schedulePostDrain();
+	}
+	
+	private void schedulePostDrain() {
+		if (postDrainScheduled.compareAndSet(false, true)) {
+			postTimer.start();
+		}
+	}
+	
+	/**
+	 * Applies all posted operations to the displayed list.
+	 */
+	private void drainPostedOperations() {
+		postDrainScheduled.set(false);
+		List<DPanelListOperation<V>> batch = new ArrayList<>();
+		for (DPanelListOperation<V> operation; (operation = postedOperations.poll()) != null;) {
+			batch.add(operation);
+		}
+		if (batch.isEmpty() || objects == null) return;
+		
+		boolean incremental = model != null && batch.size() <= INCREMENTAL_POST_LIMIT;
+		ignoreModelEvents = !incremental;
+		try {
+			applyPostedOperations(batch);
+		} finally {
+			ignoreModelEvents = false;
+		}
+		if (!incremental) {
+			refresh();
+		}
+	}
+	
+	private void applyPostedOperations(List<DPanelListOperation<V>> batch) {
+		synchronized (objects) {
+			int i = 0;
+			while (i < batch.size()) {
+				DPanelListOperation<V> operation = batch.get(i);
+				int end = i + 1;
+				try {
+					switch (operation.getType()) {
+						case APPEND: {
+							while (end < batch.size() && batch.get(end).getType() == DPanelListOperation.Type.APPEND) end++;
+							List<V> appended = new ArrayList<>(end - i);
+							for (int k = i; k < end; k++) {
+								appended.add(batch.get(k).getElement());
+							}
+							objects.addAll(appended);
+							break;
+						}
+						case REMOVE: {
+							while (end < batch.size() && batch.get(end).getType() == DPanelListOperation.Type.REMOVE) end++;
+							Map<V, Integer> removals = new IdentityHashMap<>();
+							for (int k = i; k < end; k++) {
+								removals.merge(batch.get(k).getElement(), 1, Integer::sum);
+							}
+							//Removes the first occurrences only, relies on the elements being tested in order
+							objects.removeIf(object -> {
+								Integer count = removals.get(object);
+								if (count == null) return false;
+								if (count == 1) {
+									removals.remove(object);
+								} else {
+									removals.put(object, count - 1);
+								}
+								return true;
+							});
+							break;
+						}
+						case INSERT:
+							objects.add(operation.getIndex(), operation.getElement());
+							break;
+						case SET:
+							objects.set(operation.getIndex(), operation.getElement());
+							break;
+						case REMOVE_AT:
+							objects.remove(operation.getIndex());
+							break;
+						case CLEAR:
+							objects.clear();
+							break;
+					}
+				} catch (RuntimeException e) {
+					panelErrorHandler.accept(operation.getElement(), e);
+				}
+				i = end;
+			}
+		}
+	}
+	
+	/**
+	 * Regenerates the entire layout (Time expensive)
+	 */
+	private void regenerateRows() {
+		if (panels == null) return;
+		if (!virtualized) {
+			innerPanel.removeAll();
+			for (T panel : panels) {
+				innerPanel.add(panel);
+			}
+		}
+		updateRows();
+	}
+	
+	/**
+	 * Updates indexes, selection indicators and components of the panels without changing the component hierarchy.
+	 * The layout is revalidated once at the end.
+	 */
+	private void updateRows() {
+		if (panels == null) return;
+		if (virtualized) {
+			//Rows are positioned by the layout, only the bound panels need to be updated
+			updateVirtualWindow(null);
+			trimPanelPool();
+		}
+		for (int i = firstMaterializedRow(); i <= lastMaterializedRow(); i++) {
+			T panel = panels.get(i);
+			if (panel == null) continue;
+			panel.setIndex(i);
+			paintPanelSelection(panel, isRowSelected(i));
+			panel.updateComponents(panel.selected());
+		}
+		revalidateAndRepaint();
+	}
+	
+	/**
+	 * Updates components and backgrounds of panels.
+	 */
+	@SuppressWarnings("unused")
+	private void refreshRows() {
+		if (panels == null) return;
+		for (int i = firstMaterializedRow(); i <= lastMaterializedRow(); i++) {
+			T panel = panels.get(i);
+			if (panel == null) continue;
+			paintPanelSelection(panel, isRowSelected(i));
+			panel.updateComponents(panel.selected());
+		}
+		revalidateAndRepaint();
+	}
+	
+	/**
+	 * Updates the selection indicators of the panels whose selected state differs from the selection model.
+	 * Only the area of those rows is repainted, nothing is laid out again.
+	 * <br><br>
+	 * Checks every materialized row, so it is only used after the selection model was replaced.
+	 * Changes of the selection model itself are painted by {@link #selectionModelChanged(ListSelectionEvent)} using the range of the event.
+	 */
+	private void refreshSelectionPainting() {
+		if (panels == null) return;
+		for (int i = firstMaterializedRow(); i <= lastMaterializedRow(); i++) {
+			refreshRowSelection(i);
+		}
+	}
+	
+	/**
+	 * Updates and repaints the selection indicators of the row if its selected state flipped.
+	 */
+	private void refreshRowSelection(int index) {
+		T panel = panels.get(index);
+		if (panel == null) return;
+		boolean selected = isRowSelected(index);
+		if (panel.selected() == selected) return;
+		paintPanelSelection(panel, selected);
+		//The outside selection border is painted into the side gaps, in grid mode into the gaps around the cell
+		if (gridMode) {
+			innerPanel.repaint(panel.getX() - gap, panel.getY() - gap, panel.getWidth() + gap * 2, panel.getHeight() + gap * 2);
+		} else {
+			innerPanel.repaint(panel.getX() - sideGap, panel.getY(), panel.getWidth() + sideGap * 2, panel.getHeight());
+		}
+	}
+	
+	/**
+	 * Updates the selection indicators of all panels, for example after the highlight colors changed.
+	 */
+	private void repaintSelectionIndicators() {
+		if (panels == null) return;
+		for (int i = firstMaterializedRow(); i <= lastMaterializedRow(); i++) {
+			T panel = panels.get(i);
+			if (panel == null) continue;
+			paintPanelSelection(panel, isRowSelected(i));
+		}
+		innerPanel.repaint();
+	}
+	
+	/**
+	 * Marks the panel as (un)selected and updates its selection indicators.
+	 */
+	private void paintPanelSelection(T panel, boolean selected) {
+		if (selected) {
+			panel.select();
+		} else {
+			panel.unselect();
+		}
+		if (paintHighlights) {
+			panel.updateSelection(selected);
+			if (!paintBorderOutside) {
+				if (unselectedBorder == null) {
+					unselectedBorder = new EmptyBorder(highlightBorder.getBorderInsets(panel));
+				}
+				panel.setBorder(selected ? highlightBorder : unselectedBorder);
+			}
+		}
+	}
+
+	@SuppressWarnings("unused")
+	private void revalidateAndRepaintRows() {
+		for (int i = firstMaterializedRow(); i <= lastMaterializedRow(); i++) {
+			T panel = panels.get(i);
+			if (panel == null) continue;
+			panel.updateComponents(panel.selected());
+			panel.revalidate();
+			panel.repaint();
+		}
+	}
+	
+	private void revalidateAndRepaint() {
+		rowLayout.invalidatePreferredWidth();
+		rowHeights.invalidate();
+		sectionIndex.invalidate();
+		rowIndexValid = false;
+		revalidateRows();
+	}
+	
+	/**
+	 * Schedules the layout and painting of the rows after they changed.
+	 * Unlike {@link #revalidateAndRepaint()} the row heights and the row lookup are left alone, the caller has to update them.
+	 */
+	private void revalidateRows() {
+		rowOffsets.invalidate();
+		invalidateTypeAheadIndex();
+		this.revalidate();
+		this.repaint();
+		innerPanel.revalidate();
+		innerPanel.repaint();
+	}
+	
+	/**
+	 * Sets the model holding the selected row indexes, for example to share the selection with other components.
+	 * The component listens to the model and repaints the rows whose selection changed.
+	 * <br><br>
+	 * The model should allow multiple intervals for {@link SelectionMode#MULTI_SELECTION}. Its selection is not modified
+	 * except for {@link SelectionMode#SELECTION_FORCED} which selects the first row when the model is empty.
+	 * @param selectionModel The new selection model, not null.
+	 */
+	public void setSelectionModel(ListSelectionModel selectionModel) {
+		if (selectionModel == null) {
+			throw new IllegalArgumentException("Selection model can't be null");
+		}
+		this.selectionModel.removeListSelectionListener(selectionHandler);
+		this.selectionModel = selectionModel;
+		selectionModel.addListSelectionListener(selectionHandler);
+		lastActiveIndex = -1;
+		resetPendingIndexes();
+		ensureForcedSelection();
+		refreshSelectionPainting();
+	}
+	
+	public ListSelectionModel getSelectionModel() {
+		return selectionModel;
+	}
+	
+	/**
+	 * Adds a listener to the selection model that is notified with the range of rows whose selection changed.
+	 */
+	public void addListSelectionListener(ListSelectionListener listener) {
+		selectionModel.addListSelectionListener(listener);
+	}
+	
+	public void removeListSelectionListener(ListSelectionListener listener) {
+		selectionModel.removeListSelectionListener(listener);
+	}
+	
+	/**
+	 * Selects all rows if the selection mode is {@link SelectionMode#MULTI_SELECTION}.
+	 */
+	public void selectAll() {
+		if (selectionMode != SelectionMode.MULTI_SELECTION || rows.isEmpty()) return;
+		selectionModel.setSelectionInterval(0, rows.size() - 1);
+	}
+	
+	/**
+	 * Repaints the selection indicators of the visible rows whose selection changed.
+	 * Changes made while the model is adjusting are painted once the adjustment ends, after the rows are consistent again.
+	 */
+	private void selectionModelChanged(ListSelectionEvent e) {
+		if (hasListListeners()) {
+			scheduleListEvent();
+		}
+		if (e.getValueIsAdjusting() || panels == null) return;
+		int first = Math.max(e.getFirstIndex(), firstMaterializedRow());
+		int last = Math.min(e.getLastIndex(), lastMaterializedRow());
+		for (int i = first; i <= last; i++) {
+			refreshRowSelection(i);
+		}
+	}
+	
+	private boolean isRowSelected(int index) {
+		return selectionModel.isSelectedIndex(index);
+	}
+	
+	/**
+	 * Returns a copy of the selected row indexes.
+	 */
+	private BitSet getSelectionBits() {
+		BitSet bits = new BitSet();
+		int max = selectionModel.getMaxSelectionIndex();
+		for (int i = Math.max(0, selectionModel.getMinSelectionIndex()); i <= max; i++) {
+			if (selectionModel.isSelectedIndex(i)) {
+				bits.set(i);
+			}
+		}
+		return bits;
+	}
+	
+	/**
+	 * Replaces the selection with the specified row indexes, the listeners get notified once.
+	 */
+	private void setSelectionBits(BitSet bits) {
+		boolean adjusting = selectionModel.getValueIsAdjusting();
+		selectionModel.setValueIsAdjusting(true);
+		selectionModel.clearSelection();
+		for (int start = bits.nextSetBit(0); start != -1; ) {
+			int end = bits.nextClearBit(start);
+			selectionModel.addSelectionInterval(start, end - 1);
+			start = bits.nextSetBit(end);
+		}
+		selectionModel.setValueIsAdjusting(adjusting);
+	}
+	
+	/**
+	 * Shifts the selection past rows inserted at the index, the inserted rows are not selected.
+	 */
+	private void insertSelectionRows(int index, int length) {
+		selectionModel.insertIndexInterval(index, length, true);
+		selectionModel.removeSelectionInterval(index, index + length - 1);
+	}
+	
+	/**
+	 * Un-selects all rows.
+	 */
+	private void deselectAllRows() {
+		selectionModel.clearSelection();
+	}
+
+	/**
+	 * Moves the selection and the last active row to the new indexes of their rows after a refresh.
+	 * @param oldToNew For every previous row index the new index or -1 if the row was removed.
+	 */
+	private void remapSelection(int[] oldToNew) {
+		BitSet selection = getSelectionBits();
+		BitSet remapped = new BitSet();
+		for (int i = selection.nextSetBit(0); i != -1 && i < oldToNew.length; i = selection.nextSetBit(i + 1)) {
+			if (oldToNew[i] != -1) {
+				remapped.set(oldToNew[i]);
+			}
+		}
+		setSelectionBits(remapped);
+		lastActiveIndex = lastActiveIndex != -1 && lastActiveIndex < oldToNew.length ? oldToNew[lastActiveIndex] : -1;
+	}
+	
+	/**
+	 * Returns the bounds of a row even if it is currently not backed by a panel or has not been laid out yet.
+	 */
+	private Rectangle getRowBounds(int index) {
+		return rowLayout.getRowBounds(innerPanel, index);
+	}
+
+	/**
+	 * Returns the index of the row at the specified location or -1.
+	 */
+	private int rowAtPoint(Point p) {
+		if (gridMode) {
+			int index = rowLayout.cellAt(innerPanel, p.x, p.y, false);
+			return index != -1 && panels.get(index) != null ? index : -1;
+		}
+		RowOffsetIndex offsets = getRowOffsets();
+		int index = offsets.rowAtY(p.y);
+		if (index == -1 || p.y >= offsets.getBottom(index) || panels.get(index) == null || !offsets.containsX(p.x, 0)) {
+			return -1;
+		}
+		return index;
+	}
+	
+	/**
+	 * Returns the row keyboard navigation starts from, the row of the keyboard lead or the last row clicked, -1 if there is none.
+	 */
+	private int getLeadIndex() {
+		int lead = -1;
+		if (keyboardLead != null) {
+			if (keyboardLeadRow >= 0 && keyboardLeadRow < rows.size() && rows.get(keyboardLeadRow) == keyboardLead) { //Object comparison
+				lead = keyboardLeadRow;
+			} else {
+				lead = keyboardLeadRow = indexOfRow(keyboardLead);
+			}
+		}
+		if (lead == -1 && lastActiveIndex < rows.size()) {
+			lead = lastActiveIndex;
+		}
+		return lead;
+	}
+	
+	/**
+	 * Returns the row a navigation key moves the lead to. Every step is computed from the geometry of the layout,
+	 * so the cost does not depend on the number of rows.
+	 */
+	private int getNavigationTarget(Navigation navigation, int lead) {
+		int last = rows.size() - 1;
+		if (navigation == Navigation.LAST) return last;
+		if (lead == -1 || navigation == Navigation.FIRST) return 0;
+		int columns = rowLayout.getColumns(innerPanel);
+		switch (navigation) {
+			case PREVIOUS_ROW:
+				return lead >= columns ? lead - columns : lead;
+			case NEXT_ROW:
+				return lead + columns <= last ? lead + columns : lead;
+			case PREVIOUS_COLUMN:
+				return gridMode ? Math.max(0, lead - 1) : lead;
+			case NEXT_COLUMN:
+				return gridMode ? Math.min(last, lead + 1) : lead;
+			case PREVIOUS_PAGE:
+			case NEXT_PAGE:
+				Rectangle bounds = getRowBounds(lead);
+				int height = getViewport().getExtentSize().height;
+				int y = navigation == Navigation.PREVIOUS_PAGE ? bounds.y - height : bounds.y + height;
+				//rowAtY returns the first cell of a grid row, stay in the column of the lead
+				int target = rowLayout.rowAtY(innerPanel, Math.max(0, y)) + lead % columns;
+				return Math.min(last, target);
+			default:
+				return lead;
+		}
+	}
+	
+	/**
+	 * Moves the lead to a row, either selecting only that row or extending the selection from the last clicked row to it,
+	 * and scrolls the row into view.
+	 */
+	private void navigateTo(int index, boolean extend) {
+		if (index < 0 || index >= rows.size()) return;
+		if (extend && selectionMode == SelectionMode.MULTI_SELECTION && lastActiveIndex != -1) {
+			selectionModel.setSelectionInterval(lastActiveIndex, index);
+		} else {
+			selectionModel.setSelectionInterval(index, index);
+			lastActiveIndex = index;
+		}
+		keyboardLead = rows.get(index);
+		keyboardLeadRow = index;
+		ensureIndexIsVisible(index);
+		fireSelectionListener();
+	}
+	
+	/**
+	 * Schedules a rebuild of the type-ahead index after the rows changed. The changes made until the rebuild starts are handled by a single rebuild,
+	 * a steady stream of changes therefore causes at most one rebuild per {@value #TYPE_AHEAD_REBUILD_DELAY} ms instead of postponing it forever.
+	 */
+	private void invalidateTypeAheadIndex() {
+		typeAheadVersion++;
+		if (typeAheadKey != null && typeAheadTimer != null && typeAheadBuild == null && !typeAheadTimer.isRunning()) {
+			typeAheadTimer.start();
+		}
+	}
+	
+	/**
+	 * Starts building the type-ahead index from a snapshot of the rows on a worker thread.
+	 */
+	private void buildTypeAheadIndex() {
+		typeAheadTimer.stop();
+		if (typeAheadKey == null) return;
+		typeAheadBuild = new TypeAheadBuild(new ArrayList<>(rows), typeAheadIndex, typeAheadChanged);
+		typeAheadChanged = Collections.newSetFromMap(new IdentityHashMap<>());
+		typeAheadBuild.execute();
+	}
+	
+	/**
+	 * Selects the next row matching the typed prefix. Waits for the index if it has not been built yet.
+	 * @param start The row the search starts at.
+	 */
+	private void selectNextMatch(int start) {
+		if (typeAheadIndex == null) {
+			pendingMatchStart = start;
+			return;
+		}
+		String prefix = typedPrefix;
+		if (prefix.length() > 1 && prefix.chars().allMatch(c -> c == prefix.charAt(0))) {
+			//Typing the same character again cycles through the rows starting with it
+			int index = getNextMatch(prefix.substring(0, 1), getLeadIndex() + 1);
+			if (index != -1) {
+				navigateTo(index, false);
+				return;
+			}
+		}
+		int index = getNextMatch(prefix, start);
+		if (index != -1) {
+			navigateTo(index, false);
+		}
+	}
+	
+	/**
+	 * Returns the section whose header is at the specified location, including the sticky header, or -1.
+	 */
+	private int sectionAtPoint(Point p) {
+		SectionIndex sections = getSections();
+		if (sections == null || sections.isEmpty()) return -1;
+		Rectangle view = getViewport().getViewRect();
+		int sticky = getStickySection(view);
+		if (sticky != -1 && getStickyHeaderBounds(sticky, view).contains(p)) {
+			return sticky;
+		}
+		int section = rowLayout.sectionAtY(innerPanel, p.y);
+		if (section != -1 && p.y < rowLayout.getSectionY(innerPanel, section) + getSectionHeaderHeight()) {
+			return section;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Collapses or expands a section. A section collapsed through its sticky header is scrolled to its header so the rows below it stay in view.
+	 */
+	private void toggleSection(int section) {
+		SectionIndex.Section clicked = sectionIndex.get(section);
+		Rectangle view = getViewport().getViewRect();
+		boolean stuck = rowLayout.getSectionY(innerPanel, section) < view.y;
+		setSectionCollapsed(clicked.key, !clicked.collapsed);
+		if (stuck && !clicked.collapsed && section < sectionIndex.size()) {
+			getViewport().setViewPosition(new Point(view.x, rowLayout.getSectionY(innerPanel, section)));
+		}
+	}
+	
+	/**
+	 * Returns the section whose header sticks to the top of the viewport or -1 if the list is not sectioned.
+	 */
+	private int getStickySection(Rectangle view) {
+		SectionIndex sections = getSections();
+		if (sections == null || sections.isEmpty()) return -1;
+		return rowLayout.sectionAtY(innerPanel, view.y);
+	}
+	
+	/**
+	 * Returns the area of the sticky header, the top of the viewport unless the header of the next section pushes it up.
+	 */
+	private Rectangle getStickyHeaderBounds(int section, Rectangle view) {
+		int height = getSectionHeaderHeight();
+		int y = view.y;
+		if (section + 1 < sectionIndex.size()) {
+			y = Math.min(y, rowLayout.getSectionY(innerPanel, section + 1) - height);
+		}
+		return new Rectangle(0, y, innerPanel.getWidth(), height);
+	}
+	
+	/**
+	 * Repaints the sticky header after the viewport moved. Blitting moves the previously painted header along with the rows,
+	 * so its old area is repainted as well.
+	 */
+	private void repaintStickyHeader() {
+		Rectangle view = getViewport().getViewRect();
+		int section = getStickySection(view);
+		Rectangle bounds = section != -1 ? getStickyHeaderBounds(section, view) : null;
+		repaintChangedArea(stickyHeaderBounds, bounds);
+		stickyHeaderBounds = bounds;
+	}
+	
+	/**
+	 * Paints the headers of the sections intersecting the clip into the space the layout reserved for them.
+	 */
+	private void paintSectionHeaders(Graphics g) {
+		SectionIndex sections = getSections();
+		if (sections == null || sections.isEmpty()) return;
+		Rectangle clip = g.getClipBounds();
+		int clipTop = clip != null ? clip.y : 0;
+		int clipBottom = clip != null ? clip.y + clip.height : innerPanel.getHeight();
+		int height = getSectionHeaderHeight();
+		for (int k = Math.max(0, rowLayout.sectionAtY(innerPanel, clipTop)); k < sections.size(); k++) {
+			int y = rowLayout.getSectionY(innerPanel, k);
+			if (y >= clipBottom) break;
+			paintSectionHeader(g, k, y, height);
+		}
+	}
+	
+	/**
+	 * Paints the header of the section at the top of the viewport over the rows scrolling by beneath it.
+	 */
+	private void paintStickyHeader(Graphics g) {
+		Rectangle view = getViewport().getViewRect();
+		int section = getStickySection(view);
+		if (section == -1) return;
+		Rectangle bounds = getStickyHeaderBounds(section, view);
+		paintSectionHeader(g, section, bounds.y, bounds.height);
+	}
+	
+	private void paintSectionHeader(Graphics g, int section, int y, int height) {
+		SectionIndex.Section header = sectionIndex.get(section);
+		Component component = sectionRenderer.getSectionRendererComponent(this, header.key, header.size, header.collapsed);
+		sectionRendererPane.paintComponent(g, component, innerPanel, 0, y, innerPanel.getWidth(), height, true);
+	}
+	
+	/**
+	 * Whether the row at the specified index contains the point, even if it is currently not backed by a panel.
+	 */
+	private boolean rowContains(int index, Point p) {
+		T panel = panels.get(index);
+		if (panel != null) {
+			return p.x >= panel.getX() && p.x < panel.getX() + panel.getWidth() && p.y >= panel.getY() && p.y < panel.getY() + panel.getHeight();
+		}
+		return getRowBounds(index).contains(p);
+	}
+	
+	/**
+	 * Returns the y offset index of the materialized rows, rebuilding it if the layout changed since the last call.
+	 */
+	private RowOffsetIndex getRowOffsets() {
+		int first = firstMaterializedRow();
+		int last = lastMaterializedRow();
+		if (!rowOffsets.isValid(first, last)) {
+			int left = rowLayout.getRowX(innerPanel);
+			rowOffsets.rebuild(panels, first, last, left, left + rowLayout.getRowWidth(innerPanel));
+		}
+		return rowOffsets;
+	}
+
+	/**
+	 * Creates the panel of a row. Failures are passed to the panel error handler and the row is skipped.
+	 */
+	private T createPanel(V object) {
+		long start = startTiming();
+		try {
+			T panel = panelFactory.apply(object);
+			if (panel == null) {
+				throw new IllegalStateException("Panel factory returned null for " + object);
+			}
+			return panel;
+		} catch (RuntimeException e) {
+			panelErrorHandler.accept(object, e);
+			return null;
+		} finally {
+			stopTiming(DPanelListMetrics.Metric.PANEL_CREATION, start);
+		}
+	}
+	
+	/**
+	 * Returns the start time of a measured operation or 0 if instrumentation is disabled.
+	 */
+	private long startTiming() {
+		return metrics != null ? System.nanoTime() : 0;
+	}
+	
+	/**
+	 * Records the time since the start of a measured operation. Nothing is recorded if instrumentation was disabled at the start.
+	 */
+	private void stopTiming(DPanelListMetrics.Metric metric, long start) {
+		if (metrics != null && start != 0) {
+			metrics.record(metric, System.nanoTime() - start);
+		}
+	}
+	
+	private boolean hasListListeners() {
+		return listenerList.getListenerCount(DPanelListListener.class) > 0;
+	}
+	
+	private void recordChange(DPanelListEvent.Type type, int index0, int index1) {
+		recordChange(new DPanelListEvent.Change(type, index0, index1));
+	}
+	
+	/**
+	 * Adds a structure change to the next {@link DPanelListEvent}. Insertions, removals and updates of adjacent rows are merged.
+	 */
+	private void recordChange(DPanelListEvent.Change change) {
+		if (!hasListListeners()) return;
+		int size = pendingChanges.size();
+		DPanelListEvent.Change merged = size > 0 ? mergeChanges(pendingChanges.get(size - 1), change) : null;
+		if (merged != null) {
+			pendingChanges.set(size - 1, merged);
+		} else {
+			pendingChanges.add(change);
+		}
+		scheduleListEvent();
+	}
+	
+	/**
+	 * Returns a single change equivalent to applying both changes in order or null if they can't be combined.
+	 */
+	private static DPanelListEvent.Change mergeChanges(DPanelListEvent.Change previous, DPanelListEvent.Change next) {
+		if (previous.getType() != next.getType()) return null;
+		int a = previous.getIndex0();
+		int b = previous.getIndex1();
+		int c = next.getIndex0();
+		int d = next.getIndex1();
+		switch (next.getType()) {
+			case ADDED:
+				//Rows inserted into or right after the previously inserted range
+				return c >= a && c <= b + 1 ? new DPanelListEvent.Change(DPanelListEvent.Type.ADDED, a, b + next.getLength()) : null;
+			case REMOVED:
+				//Rows removed at or right before the position of the previously removed range
+				return c <= a && d + 1 >= a ? new DPanelListEvent.Change(DPanelListEvent.Type.REMOVED, c, d + previous.getLength()) : null;
+			case UPDATED:
+				return c <= b + 1 && d + 1 >= a ? new DPanelListEvent.Change(DPanelListEvent.Type.UPDATED, Math.min(a, c), Math.max(b, d)) : null;
+			default:
+				return null;
+		}
+	}
+	
+	/**
+	 * Records the changes of a refresh as removals, a single move of the remaining rows and insertions.
+	 * @param oldToNew For every previous row index the new index or -1 if the row was removed.
+	 * @param size The number of rows after the refresh.
+	 */
+	private void recordRefresh(int[] oldToNew, int size) {
+		if (!hasListListeners()) return;
+		//Removals from the bottom up, so that every range is valid when the previous ones have been applied
+		for (int i = oldToNew.length - 1; i >= 0; i--) {
+			if (oldToNew[i] != -1) continue;
+			int end = i;
+			while (i > 0 && oldToNew[i - 1] == -1) i--;
+			recordChange(DPanelListEvent.Type.REMOVED, i, end);
+		}
+		
+		BitSet retained = new BitSet(size);
+		for (int index : oldToNew) {
+			if (index != -1) retained.set(index);
+		}
+		//Position of every retained row among the retained rows after the refresh
+		int[] rank = new int[size];
+		int count = 0;
+		for (int i = retained.nextSetBit(0); i != -1; i = retained.nextSetBit(i + 1)) {
+			rank[i] = count++;
+		}
+		int[] permutation = new int[count];
+		int first = -1;
+		int last = -1;
+		int position = 0;
+		for (int index : oldToNew) {
+			if (index == -1) continue;
+			permutation[position] = rank[index];
+			if (rank[index] != position) {
+				if (first == -1) first = position;
+				last = position;
+			}
+			position++;
+		}
+		if (first != -1) {
+			int offset = first;
+			int[] moved = Arrays.copyOfRange(permutation, first, last + 1);
+			recordChange(new DPanelListEvent.Change(DPanelListEvent.Type.MOVED, first, last, i -> moved[i - offset]));
+		}
+		
+		//Insertions from the top down at their final indexes
+		for (int i = retained.nextClearBit(0); i < size; i = retained.nextClearBit(i)) {
+			int end = retained.nextSetBit(i);
+			if (end == -1) end = size;
+			recordChange(DPanelListEvent.Type.ADDED, i, end - 1);
+			i = end;
+		}
+	}
+	
+	private void scheduleListEvent() {
+		if (listEventScheduled) return;
+		listEventScheduled = true;
+		SwingUtilities.invokeLater(this::fireListEvent);
+	}
+	
+	/**
+	 * Notifies the {@link DPanelListListener}s about the changes collected during the current turn.
+	 * The previously published selection is moved along with the structure changes and compared to the current selection.
+	 */
+	private void fireListEvent() {
+		listEventScheduled = false;
+		List<DPanelListEvent.Change> changes = pendingChanges;
+		pendingChanges = new ArrayList<>();
+		if (!hasListListeners()) return;
+		
+		BitSet previous = publishedSelection;
+		for (DPanelListEvent.Change change : changes) {
+			applyChange(previous, change);
+		}
+		BitSet current = getSelectionBits();
+		publishedSelection = current;
+		BitSet selected = (BitSet) current.clone();
+		selected.andNot(previous);
+		BitSet deselected = previous;
+		deselected.andNot(current);
+		if (changes.isEmpty() && selected.isEmpty() && deselected.isEmpty()) return;
+		
+		DPanelListEvent event = new DPanelListEvent(this, changes, selected, deselected);
+		long start = startTiming();
+		Object[] listeners = listenerList.getListenerList();
+		for (int i = listeners.length - 2; i >= 0; i -= 2) {
+			if (listeners[i] == DPanelListListener.class) {
+				((DPanelListListener) listeners[i + 1]).listChanged(event);
+			}
+		}
+		stopTiming(DPanelListMetrics.Metric.EVENT_DISPATCH, start);
+	}
+	
+	/**
+	 * Moves the selected row indexes along with a structure change.
+	 */
+	private static void applyChange(BitSet selection, DPanelListEvent.Change change) {
+		int index0 = change.getIndex0();
+		int index1 = change.getIndex1();
+		switch (change.getType()) {
+			case ADDED:
+				shiftBits(selection, index0, change.getLength());
+				break;
+			case REMOVED:
+				selection.clear(index0, index1 + 1);
+				shiftBits(selection, index1 + 1, -change.getLength());
+				break;
+			case MOVED:
+				BitSet moved = selection.get(index0, index1 + 1);
+				selection.clear(index0, index1 + 1);
+				for (int i = moved.nextSetBit(0); i != -1; i = moved.nextSetBit(i + 1)) {
+					selection.set(change.newIndexOf(index0 + i));
+				}
+				break;
+			default:
+				break;
+		}
+	}
+	
+	private void fireSelectionListener() {
+		if (actionListener != null) {
+			long start = startTiming();
+			actionListener.actionPerformed(generateEvent(SELECTION_CHANGED));
+			stopTiming(DPanelListMetrics.Metric.EVENT_DISPATCH, start);
+		}
+	}
+
+	private void fireDoubleClickListener() {
+		if (doubleClickListener != null) {
+			long start = startTiming();
+			doubleClickListener.actionPerformed(generateEvent(DOUBLE_CLICK));
+			stopTiming(DPanelListMetrics.Metric.EVENT_DISPATCH, start);
+		}
+	}
+	
+	private void fireStructureListener(ActionEvent e) {
+		if (structureListener != null) {
+			long start = startTiming();
+			structureListener.actionPerformed(e);
+			stopTiming(DPanelListMetrics.Metric.EVENT_DISPATCH, start);
+		}
+	}
+	
+	private ActionEvent generateEvent(String command) {
+		return new ActionEvent(this, ActionEvent.ACTION_PERFORMED, command, System.currentTimeMillis(), 0);
+	}
+	
+	/**
+	 * Applies the events of the model to the rows. Events fired outside of the event dispatch thread are turned into a single deferred refresh
+	 * until it has run.
+	 */
+	class ModelHandler implements DPanelListModelListener {
+		private boolean accept() {
+			if (!SwingUtilities.isEventDispatchThread()) {
+				if (modelRefreshScheduled.compareAndSet(false, true)) {
+					SwingUtilities.invokeLater(() -> {
+						//Events fired from now on need another refresh
+						modelRefreshScheduled.set(false);
+						refresh();
+					});
+				}
+				return false;
+			}
+			if (ignoreModelEvents) return false;
+			if (asyncRefresh != null) {
+				//The rows are still catching up with the model, restarting on every event would never let the refresh finish
+				asyncRefresh.modelChanged = true;
+				return false;
+			}
+			if (sectionKey != null) {
+				//Model indexes differ from row indexes while sections are collapsed and a change can move an element into another section
+				refresh();
+				return false;
+			}
+			structureVersion++;
+			return true;
+		}
+		
+		@Override
+		public void intervalAdded(DPanelListModelEvent e) {
+			if (accept()) rowsInserted(e.getIndex0(), e.getIndex1());
+		}
+		
+		@Override
+		public void intervalRemoved(DPanelListModelEvent e) {
+			if (accept()) rowsRemoved(e.getIndex0(), e.getIndex1());
+		}
+		
+		@Override
+		public void contentsChanged(DPanelListModelEvent e) {
+			if (accept()) rowsChanged(e.getIndex0(), e.getIndex1());
+		}
+		
+		@Override
+		public void moved(DPanelListModelEvent e) {
+			if (accept()) rowsMoved(e.getIndex0(), e.getIndex1(), e.getTargetIndex());
+		}
+	}
+	
+	/**
+	 * Refresh computing the differences on a worker thread and applying them on the event dispatch thread in time limited chunks.
+	 */
+	private class AsyncRefresh extends SwingWorker<Void, Void> {
+		private final List<V> source;
+		private final List<V> oldRows;
+		private final int version;
+		private final boolean fireListeners;
+		private final boolean virtual;
+		private final Function<? super V, ?> sectionKey;
+		private final Set<Object> collapsedKeys;
+		private final boolean timed;
+		
+		private List<V> newRows;
+		private List<SectionIndex.Section> sections;
+		private IdentityDiff diff;
+		private long diffNanos;
+		private List<V> matchedRows;
+		private IdentityDiff matchedDiff;
+		private BitSet matchedMoved;
+		
+		/**
+		 * Index of the next row of the snapshot to apply.
+		 */
+		private int next = 0;
+		
+		/**
+		 * Number of rows of the snapshot that could not be created and are left out.
+		 */
+		private int skipped = 0;
+		
+		/**
+		 * Whether the model changed after the snapshot was taken, another refresh follows once this one has been applied.
+		 */
+		private boolean modelChanged = false;
+		
+		AsyncRefresh(List<V> source, boolean fireListeners) {
+			this.source = source;
+			this.oldRows = new ArrayList<>(rows);
+			this.version = structureVersion;
+			this.fireListeners = fireListeners;
+			this.virtual = virtualized;
+			this.sectionKey = DPanelList.this.sectionKey;
+			this.collapsedKeys = new HashSet<>(collapsedSections);
+			this.timed = metrics != null;
+		}
+		
+		@Override
+		protected Void doInBackground() {
+			synchronized (source) {
+				newRows = new ArrayList<>(source);
+			}
+			if (sectionKey != null) {
+				sections = new ArrayList<>();
+				newRows = SectionIndex.split(newRows, sectionKey, collapsedKeys, sections);
+			}
+			long start = timed ? System.nanoTime() : 0;
+			diff = new IdentityDiff(oldRows, newRows);
+			diffNanos = timed ? System.nanoTime() - start : 0;
+			if (!virtual) {
+				matchedDiff = diff.withoutInsertions();
+				matchedMoved = matchedDiff.getMovedIndexes();
+				matchedRows = new ArrayList<>(matchedDiff.newToOld.length);
+				for (int oldIndex : matchedDiff.newToOld) {
+					matchedRows.add(oldRows.get(oldIndex));
+				}
+			}
+			return null;
+		}
+		
+		@Override
+		protected void done() {
+			if (!isCurrent()) return;
+			try {
+				get();
+			} catch (InterruptedException | ExecutionException e) {
+				//Most likely the list was modified without synchronization, do it the blocking way
+				refresh(fireListeners);
+				return;
+			}
+			if (timed && metrics != null) {
+				//Measured on the worker thread, samples are only recorded on the event dispatch thread
+				metrics.record(DPanelListMetrics.Metric.DIFF, diffNanos);
+			}
+			long start = startTiming();
+			if (sections != null) {
+				sectionIndex.setSections(sections);
+			}
+			
+			if (virtual) {
+				//Only the visible rows need a panel, apply everything at once
+				refreshVirtualRows(newRows);
+				remapSelection(diff.oldToNew);
+				recordRefresh(diff.oldToNew, rows.size());
+				resetPendingIndexes();
+				next = newRows.size();
+				stopTiming(DPanelListMetrics.Metric.REFRESH, start);
+				finish();
+				return;
 			}
+			
+			//Removals and moves of existing panels first, the new panels are inserted in chunks
+			refreshPanels(matchedRows, matchedDiff, matchedMoved);
+			remapSelection(matchedDiff.oldToNew);
+			recordRefresh(matchedDiff.oldToNew, rows.size());
+			resetPendingIndexes();
+			stopTiming(DPanelListMetrics.Metric.REFRESH, start);
+			applyChunk();
 		}
 		
-		updateSelection();
-		if (selectedPanels.isEmpty()) {
-			if (selectionMode == SelectionMode.SELECTION_FORCED) {
-				if (panels.size() > 0) {
-					panels.get(0).select();
-				}
+		/**
+		 * Whether this is still the refresh the component is waiting for and nothing else changed the rows.
+		 * Starts a new refresh if the rows changed.
+		 */
+		private boolean isCurrent() {
+			if (asyncRefresh != this) return false;
+			if (structureVersion != version) {
+				refreshAsync(fireListeners);
+				return false;
 			}
+			return true;
 		}
-		updateSelection();
-		regenerateRows();
-		if (structureListener != null && fireListeners) {
-			structureListener.actionPerformed(generateEvent(STRUCTURE_CHANGED));
-		}
-	}
-	
-	private void initUI() {			
-		setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
-		setAutoscrolls(true);
-		getVerticalScrollBar().setUnitIncrement(16);
-		setScrollbarWidth(12);
 		
-		innerPanel = new CustomListInnerPanel();
-		innerPanel.setBackground(defaultBackground);
-		innerPanel.setLayout(new MigLayout("insets " + 0 + " " + sideGap + " " + 0 + " " + sideGap + ", gapy " + gap + "px", "[grow]"));
-
-		setViewportView(innerPanel);
-		setMinimumSize(new Dimension(1, 1));
-		//add(scrollPane, "cell 0 0, grow, wmin 1"); //wmin 1 to fix mig layout shrinking issues when using text wrap components (eg. text area)
-
-		if (enableDragAndDrop) {
-			tweenTimer = new Timer(10, new ActionListener() {
-			    @Override
-				public void actionPerformed(ActionEvent evt) {
-			    	if ((scrollDown || scrollUp) && !(scrollDown && scrollUp)) {
-			    		JViewport viewPort = getViewport();
-		                if (viewPort != null) {     	
-		                	Rectangle viewRect = viewPort.getViewRect();
-		                    if (scrollDown) {
-		                    	viewRect.y = (int) (scrollDragStep * acceleration);
-		                    } else {
-		                    	viewRect.y = - (int) (scrollDragStep * acceleration);
-		                    }
-		                    getViewport().scrollRectToVisible(viewRect);
-		                }
-			    	}
-			    }    
-			});
-			tweenTimer.start();
-		}
-
-		DPanelListMouseListener mouseListener = new DPanelListMouseListener();
-		innerPanel.addMouseMotionListener(mouseListener);
-		innerPanel.addMouseListener(mouseListener);
-	}
-	
-	private DropStatus checkDropLocation() {
-		if (dragging && lastActivePanel != null) {
-			boolean droppedAbove = false;
-			targetPanel = null;
-			for (int i = 0; i < panels.size(); i++) {
-				T panel = panels.get(i);
-				
-				Rectangle panelRect = panel.getBounds();
-				if (panelRect.contains(mousePos)) {
-					Rectangle topHalf = new Rectangle((int) panelRect.getX(), (int) panelRect.getY(), (int) panelRect.getWidth(), (int) panelRect.getHeight()/2);
-					if (topHalf.contains(mousePos)) {
-						droppedAbove = true;
+		/**
+		 * Creates and inserts the panels of the new rows until the time budget runs out, then yields to other events.
+		 */
+		private void applyChunk() {
+			if (!isCurrent()) return;
+			long start = startTiming();
+			long deadline = System.nanoTime() + REFRESH_CHUNK_NANOS;
+			int chunkStart = next - skipped;
+			int total = newRows.size();
+			int[] positions = new int[32];
+			List<V> createdRows = new ArrayList<>();
+			List<T> createdPanels = new ArrayList<>();
+			while (next < total) {
+				V object = newRows.get(next);
+				if (diff.newToOld[next] == -1) {
+					T panel = createPanel(object);
+					if (panel == null) {
+						skipped++;
 					} else {
-						droppedAbove = false;
-					}
-					targetPanel = panel;
-					break;
-				} else {
-					//Check gaps above and below the panel
-					
-					//Special case for the first panel
-					if (i == 0) {
-						if (getGapAboveFirstPanel(panel).contains(mousePos)) {
-							if (lastActivePanel != panel) {
-								droppedAbove = true;
-								targetPanel = panel;
-							}
-							break;
-						}
-					}
-					
-					//Special case for the last panel
-					if (i == panels.size() - 1) {
-						if (getGapBelowLastPanel(panel).contains(mousePos)) {
-							droppedAbove = false;
-							targetPanel = panel;
-							break;
+						int position = next - skipped;
+						if (createdPanels.size() == positions.length) {
+							positions = Arrays.copyOf(positions, positions.length * 2);
 						}
+						positions[createdPanels.size()] = position;
+						createdRows.add(object);
+						createdPanels.add(panel);
+						innerPanel.add(panel, position);
+						paintPanelSelection(panel, false);
+						panel.updateComponents(false);
 					}
-					
-					if (getGapBelowPanel(panel).contains(mousePos)) {
-						droppedAbove = false;
-						targetPanel = panel;
-						break;
-					}
-				}
-			}
-			if (targetPanel != null) {
-				if (droppedAbove) {
-					return DropStatus.ABOVE;
 				} else {
-					return DropStatus.BELOW;
+					//Panels of matched rows are still at their position before this chunk
+					T panel = panels.get(next - skipped - createdPanels.size());
+					panel.updateComponents(panel.selected());
 				}
-			} else {
-				return DropStatus.INVALID;
+				next++;
+				if (System.nanoTime() >= deadline) break;
 			}
-		} else {
-			return DropStatus.INVALID;
-		}
-	}
-	
-	private void moveRow(T targetPanel, T movedPanel, boolean above) {
-		synchronized(objects) {
-			int movedIndex = panels.indexOf(movedPanel);
-			int targetIndex = panels.indexOf(targetPanel);
-			
-			if (debug) System.out.println("panel size: " + panels.size() + " objects size: " + objects.size() + " movedPanelIndex: " + movedIndex + " targetIndex: " + targetIndex + " before: " + above);
 			
-			if (targetIndex == -1 || targetPanel == movedPanel || targetIndex == movedIndex) { // Object comparison
-				return;
+			int created = createdPanels.size();
+			if (created > 0) {
+				rows = mergeInsertions(rows, createdRows, positions);
+				panels = mergeInsertions(panels, createdPanels, positions);
+				shiftSelectionForInsertions(positions, created);
+				for (int i = 0; i < created; i++) {
+					recordChange(DPanelListEvent.Type.ADDED, positions[i], positions[i]);
+				}
+			}
+			for (int i = chunkStart; i < next - skipped; i++) {
+				T panel = panels.get(i);
+				panel.setIndex(i);
+				paintPanelSelection(panel, isRowSelected(i));
 			}
 			
-			panels.remove(movedPanel);
-			V movedObject = objects.remove(movedIndex);
-			
-			if (movedIndex < targetIndex) {
-				if (above) {
-					panels.add(targetIndex - 1, movedPanel);
-					objects.add(targetIndex - 1, movedObject);
-				} else {
-					panels.add(targetIndex, movedPanel);
-					objects.add(targetIndex, movedObject);
-				}
+			stopTiming(DPanelListMetrics.Metric.REFRESH, start);
+			if (next < total) {
+				revalidateAndRepaint();
+				fireRefreshProgress(next, total);
+				SwingUtilities.invokeLater(this::applyChunk);
 			} else {
-				if (above) {
-					panels.add(targetIndex, movedPanel);
-					objects.add(targetIndex, movedObject);
-				} else {
-					panels.add(targetIndex + 1, movedPanel);
-					objects.add(targetIndex + 1, movedObject);
-				}
+				finish();
 			}
-			
-			movedPanel.setIndex(targetIndex);
-			targetPanel.setIndex(movedIndex);
 		}
-	}
-	
-	private void moveRows(T targetPanel, List<T> movedPanels, boolean above) {
-		synchronized(objects) {
-			if (above) {
-				for (int i = 0; i < movedPanels.size(); i++) {
-					moveRow(targetPanel, movedPanels.get(i), above);
-				}	
+		
+		private void finish() {
+			asyncRefresh = null;
+			if (ensureForcedSelection() && panels.get(0) != null) {
+				paintPanelSelection(panels.get(0), true);
+			}
+			if (virtualized) {
+				updateRows();
 			} else {
-				for (int i = movedPanels.size()-1; i >= 0; i--) {
-					moveRow(targetPanel, movedPanels.get(i), above);
-				}
+				revalidateAndRepaint();
+			}
+			fireRefreshProgress(next, newRows.size());
+			if (fireListeners) {
+				fireStructureListener(generateEvent(STRUCTURE_CHANGED));
+			}
+			if (modelChanged && asyncRefresh == null) {
+				refreshAsync(fireListeners);
 			}
-		}
-		regenerateRows();
-		if (structureListener != null) {
-			structureListener.actionPerformed(generateEvent(STRUCTURE_CHANGED));
 		}
 	}
 	
 	/**
-	 * Call the {@link DPanelListItem#updateComponents(boolean)} method on all item panels.
+	 * Returns a new list with the inserted elements placed at the specified positions of the resulting list.
+	 * @param positions Ascending positions of the inserted elements in the resulting list.
 	 */
-	public void updatePanelComponents() {
-		for (T panel : panels) {
-			panel.updateComponents(panel.selected());
-			panel.revalidate();
-			panel.repaint();
+	private static <E> List<E> mergeInsertions(List<E> list, List<E> inserted, int[] positions) {
+		List<E> merged = new ArrayList<>(list.size() + inserted.size());
+		int source = 0;
+		for (int i = 0; i < inserted.size(); i++) {
+			while (merged.size() < positions[i]) {
+				merged.add(list.get(source++));
+			}
+			merged.add(inserted.get(i));
+		}
+		while (source < list.size()) {
+			merged.add(list.get(source++));
 		}
+		return merged;
 	}
 	
 	/**
-	 * Regenerates the entire layout (Time expensive)
+	 * Moves the selection and the last active row past rows inserted at the specified positions.
+	 * @param positions Ascending positions of the inserted rows in the resulting rows.
 	 */
-	private void regenerateRows() {
-		if (panels == null) return;
-		innerPanel.removeAll();
-		int index = 0;
-		for (T panel : panels) {
-			panel.setIndex(index);
-			innerPanel.add(panel, "wrap, grow, wmin 1"); //wmin 1 to fix mig layout shrinking issues when using text wrap components (eg. text area)
-			if (paintHighlights) {
-				panel.updateSelection(panel.selected());
-				if (!panel.selected()) {
-					if (!paintBorderOutside) {
-						panel.setBorder(null);
-					}
-				} else {
-					if (!paintBorderOutside) {
-						panel.setBorder(highlightBorder);
-					}
-				}
+	private void shiftSelectionForInsertions(int[] positions, int count) {
+		BitSet selection = getSelectionBits();
+		BitSet shifted = new BitSet();
+		int inserted = 0;
+		for (int i = selection.nextSetBit(0); i != -1; i = selection.nextSetBit(i + 1)) {
+			while (inserted < count && positions[inserted] <= i + inserted) {
+				inserted++;
 			}
-			panel.updateComponents(panel.selected());
-			index++;
+			shifted.set(i + inserted);
+		}
+		setSelectionBits(shifted);
+		if (lastActiveIndex != -1) {
+			inserted = 0;
+			while (inserted < count && positions[inserted] <= lastActiveIndex + inserted) {
+				inserted++;
+			}
+			lastActiveIndex += inserted;
 		}
-		revalidateAndRepaint();
 	}
 	
-	/**
-	 * Updates components and backgrounds of panels.
-	 */
-	@SuppressWarnings("unused")
-	private void refreshRows() {
-		if (panels == null) return;
-		for (T panel : panels) {
-			if (paintHighlights) {
-				panel.updateSelection(panel.selected());
-				if (!panel.selected()) {
-					if (!paintBorderOutside) {
-						panel.setBorder(null);
-					}
-				} else {
-					if (!paintBorderOutside) {
-						panel.setBorder(highlightBorder);
-					}
-				}
-			}
-			panel.updateComponents(panel.selected());
+	private void fireRefreshProgress(int applied, int total) {
+		if (refreshListener != null) {
+			long start = startTiming();
+			refreshListener.refreshProgress(applied, total);
+			stopTiming(DPanelListMetrics.Metric.EVENT_DISPATCH, start);
 		}
-		revalidateAndRepaint();
 	}
 	
 	/**
-	 * Makes panels repaint their selection indicators.
+	 * Builds the type-ahead index on a worker thread, see {@link TypeAheadIndex}.
 	 */
-	private void refreshSelectionPainting() {
-		if (panels == null) return;
-		for (T panel : panels) {
-			if (paintHighlights) {
-				panel.updateSelection(panel.selected());
-				if (!panel.selected()) {
-					if (!paintBorderOutside) {
-						panel.setBorder(null);
-					}
-				} else {
-					if (!paintBorderOutside) {
-						panel.setBorder(highlightBorder);
-					}
-				}
+	private class TypeAheadBuild extends SwingWorker<TypeAheadIndex<V>, Void> {
+		private final List<V> snapshot;
+		private final TypeAheadIndex<V> previous;
+		private final Set<V> changed;
+		private final Function<? super V, String> key;
+		private final int version;
+		
+		TypeAheadBuild(List<V> snapshot, TypeAheadIndex<V> previous, Set<V> changed) {
+			this.snapshot = snapshot;
+			this.previous = previous;
+			this.changed = changed;
+			this.key = typeAheadKey;
+			this.version = typeAheadVersion;
+		}
+		
+		@Override
+		protected TypeAheadIndex<V> doInBackground() {
+			return new TypeAheadIndex<>(snapshot, key, previous, changed);
+		}
+		
+		@Override
+		protected void done() {
+			if (typeAheadBuild != this) return;
+			typeAheadBuild = null;
+			try {
+				typeAheadIndex = get();
+			} catch (InterruptedException | ExecutionException e) {
+				e.printStackTrace(System.err);
+				return;
+			}
+			typeAheadIndexVersion = version;
+			if (version != typeAheadVersion) {
+				//The rows changed during the build
+				typeAheadTimer.start();
+			}
+			if (pendingMatchStart != -1) {
+				int start = pendingMatchStart;
+				pendingMatchStart = -1;
+				selectNextMatch(start);
 			}
 		}
-		this.repaint();
 	}
 	
-	@SuppressWarnings("unused")
-	private void revalidateAndRepaintRows() {
-		for (T panel : panels) {
-			panel.updateComponents(panel.selected());
-			panel.revalidate();
-			panel.repaint();
-		}
+	private enum Navigation {
+		PREVIOUS_ROW, NEXT_ROW, PREVIOUS_COLUMN, NEXT_COLUMN, PREVIOUS_PAGE, NEXT_PAGE, FIRST, LAST
 	}
 	
-	private void revalidateAndRepaint() {
-		this.revalidate();
-		this.repaint();
-		innerPanel.revalidate();
-		innerPanel.repaint();
+	private class NavigationAction extends AbstractAction {
+		private static final long serialVersionUID = 1L;
+		private final Navigation navigation;
+		private final boolean extend;
+		
+		NavigationAction(Navigation navigation, boolean extend) {
+			this.navigation = navigation;
+			this.extend = extend;
+		}
+		
+		@Override
+		public void actionPerformed(ActionEvent e) {
+			if (rows.isEmpty()) return;
+			int lead = getLeadIndex();
+			int target = getNavigationTarget(navigation, lead);
+			if (target != lead || !isRowSelected(target)) {
+				navigateTo(target, extend);
+			} else {
+				ensureIndexIsVisible(target);
+			}
+		}
 	}
 	
 	/**
-	 * Un-selects all panels.
+	 * Collects typed characters into the type-ahead prefix, a pause longer than the list time factor of the look and feel starts a new prefix.
 	 */
-	private void deselectAllPanels() {
-		for (T panel : panels) {
-			panel.unselect();
-		}
-	}
-	
-	private List<T> updateSelection() {
-		selectedPanels.clear();
-		for (T panel : panels) {
-			if (panel.selected()) {
-				selectedPanels.add(panel);
+	class DPanelListKeyListener extends KeyAdapter {
+		@Override
+		public void keyTyped(KeyEvent e) {
+			char c = e.getKeyChar();
+			if (typeAheadKey == null || rows.isEmpty() || Character.isISOControl(c) || c == KeyEvent.CHAR_UNDEFINED
+					|| (e.getModifiersEx() & (InputEvent.CTRL_DOWN_MASK | InputEvent.ALT_DOWN_MASK | InputEvent.META_DOWN_MASK)) != 0) {
+				return;
+			}
+			long now = e.getWhen();
+			Object timeFactor = UIManager.get("List.timeFactor");
+			long timeout = timeFactor instanceof Long ? (Long) timeFactor : 1000L;
+			int lead = getLeadIndex();
+			if (now - lastTypedMillis < timeout && !typedPrefix.isEmpty()) {
+				//The current row may still match the longer prefix
+				typedPrefix += c;
+				selectNextMatch(Math.max(0, lead));
+			} else {
+				typedPrefix = String.valueOf(c);
+				selectNextMatch(lead + 1);
 			}
+			lastTypedMillis = now;
+			e.consume();
 		}
-		return selectedPanels;
 	}
 	
-	private void fireSelectionListener() {
-		if (actionListener != null) {
-			actionListener.actionPerformed(generateEvent(SELECTION_CHANGED));
+	/**
+	 * Section header showing an arrow, the key and the number of elements of the section.
+	 */
+	private static class DefaultSectionRenderer extends JLabel implements DPanelListSectionRenderer {
+		private static final long serialVersionUID = 1L;
+		
+		DefaultSectionRenderer() {
+			setOpaque(true);
+			setBorder(new EmptyBorder(4, 6, 4, 6));
+			setFont(getFont().deriveFont(Font.BOLD));
+			setBackground(new HSLColor(UIManager.getColor("Panel.background")).adjustShade(10));
 		}
-	}
-
-	private void fireDoubleClickListener() {
-		if (doubleClickListener != null) {
-			doubleClickListener.actionPerformed(generateEvent(DOUBLE_CLICK));
+		
+		@Override
+		public Component getSectionRendererComponent(DPanelList<?, ?> list, Object key, int size, boolean collapsed) {
+			setText((collapsed ? "\u25B6 " : "\u25BC ") + key + " (" + size + ")");
+			return this;
 		}
 	}
 	
-	private ActionEvent generateEvent(String command) {
-		return new ActionEvent(this, ActionEvent.ACTION_PERFORMED, command, System.currentTimeMillis(), 0);
+	/**
+	 * Read-only {@link List} view of a model that does not implement {@link List} itself.
+	 */
+	private static class ModelList<V> extends AbstractList<V> implements RandomAccess {
+		private final DPanelListModel<V> model;
+		
+		ModelList(DPanelListModel<V> model) {
+			this.model = model;
+		}
+		
+		@Override
+		public V get(int index) {
+			return model.getElementAt(index);
+		}
+		
+		@Override
+		public int size() {
+			return model.getSize();
+		}
 	}
 	
 	class DPanelListMouseListener extends MouseAdapter {
-		private void singleSelection(T panel) {
-			deselectAllPanels();
-			panel.select();
-			lastActivePanel = panel;
+		private void singleSelection(int index) {
+			selectionModel.setSelectionInterval(index, index);
+			lastActiveIndex = index;
 		}
 		
 		@Override
@@ -922,104 +3996,73 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 			boolean shiftDown = e.isShiftDown();
 			
 			mousePos.setLocation(e.getX(), e.getY());
-			boolean panelFound = false;
+			if (!innerPanel.hasFocus()) {
+				innerPanel.requestFocusInWindow();
+			}
+			int section = sectionAtPoint(mousePos);
+			if (section != -1) {
+				toggleSection(section);
+				return;
+			}
 
 			try {
-				for (T panel : panels) {
-					Rectangle panelRect = panel.getBounds();
-					if (panelRect.contains(mousePos)) {
-						//Clicked on a panel
-						if (selectionMode == SelectionMode.MULTI_SELECTION && (ctrlDown || shiftDown)) {
-							if (ctrlDown && shiftDown) {
-								if (lastActivePanel == null) {
-									singleSelection(panel);
-									selectionChanged = true;
-								} else {
-									int lastIndex = panels.indexOf(lastActivePanel);
-									int currentIndex = panels.indexOf(panel);
-									if (lastIndex == currentIndex) {
-										//Do nothing
-									} else if (lastIndex > currentIndex) {
-										for (int i = 0; i < (lastIndex - currentIndex); i++) {
-											panels.get(currentIndex + i).select();
-										}
-										lastActivePanel.select();
-										selectionChanged = true;
-									} else {
-										for (int i = 0; i < (currentIndex - lastIndex); i++) {
-											panels.get(lastIndex + i).select();
-										}
-										panel.select();
-										selectionChanged = true;
-									}
-								}
-							} else if (ctrlDown) {
-								if (!panel.selected()) {
-									panel.select();
-									selectionChanged = true;
-								} else {
-									panelToDeselectOnRelease = panel;
-								}
-								lastActivePanel = panel;
-							} else if (shiftDown) {
-								if (lastActivePanel == null) {
-									singleSelection(panel);
-									selectionChanged = true;
-								} else {
-									int lastIndex = panels.indexOf(lastActivePanel);
-									int currentIndex = panels.indexOf(panel);
-									if (lastIndex == currentIndex) {
-										//Do nothing
-									} else if (lastIndex > currentIndex) {
-										deselectAllPanels();
-										for (int i = 0; i < (lastIndex - currentIndex); i++) {
-											panels.get(currentIndex + i).select();
-										}
-										lastActivePanel.select();
-										selectionChanged = true;
-									} else {
-										deselectAllPanels();
-										for (int i = 0; i < (currentIndex - lastIndex); i++) {
-											panels.get(lastIndex + i).select();
-										}
-										panel.select();
-										selectionChanged = true;
-									}
-								}
+				int index = rowAtPoint(mousePos);
+				if (index != -1) {
+					keyboardLead = rows.get(index);
+					keyboardLeadRow = index;
+					//Clicked on a panel
+					if (selectionMode == SelectionMode.MULTI_SELECTION && (ctrlDown || shiftDown)) {
+						if (ctrlDown && shiftDown) {
+							if (lastActiveIndex == -1) {
+								singleSelection(index);
+								selectionChanged = true;
+							} else if (lastActiveIndex != index) {
+								selectionModel.addSelectionInterval(lastActiveIndex, index);
+								selectionChanged = true;
 							}
-						} else {
-							//If panel is already selected, the selection should apply on mouse release
-							if (panel.selected() && panel != lastActivePanel) {
-								panelToSelectOnRelease = panel;
-							} else
-								//Regular left click
-								if (!panel.selected() || selectedPanels.size() > 1) {
-									singleSelection(panel);
-									selectionChanged = true;
-								}
-							if (e.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(e)) {
-								fireDoubleClickListener();
-								if (debug) System.out.println("Double clicked an item");
+						} else if (ctrlDown) {
+							if (!isRowSelected(index)) {
+								selectionModel.addSelectionInterval(index, index);
+								selectionChanged = true;
+							} else {
+								indexToDeselectOnRelease = index;
+							}
+							lastActiveIndex = index;
+						} else if (shiftDown) {
+							if (lastActiveIndex == -1) {
+								singleSelection(index);
+								selectionChanged = true;
+							} else if (lastActiveIndex != index) {
+								selectionModel.setSelectionInterval(lastActiveIndex, index);
+								selectionChanged = true;
+							}
+						}
+					} else {
+						//If panel is already selected, the selection should apply on mouse release
+						if (isRowSelected(index) && index != lastActiveIndex) {
+							indexToSelectOnRelease = index;
+						} else
+							//Regular left click
+							if (!isRowSelected(index) || selectionModel.getMinSelectionIndex() != selectionModel.getMaxSelectionIndex()) {
+								singleSelection(index);
+								selectionChanged = true;
 							}
+						if (e.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(e)) {
+							fireDoubleClickListener();
+							if (debug) System.out.println("Double clicked an item");
 						}
-						panelFound = true;
 					}
-				}
-				if (!panelFound) {
+				} else {
 					if (selectionMode == SelectionMode.UNSELECTION_ALLOWED) {
-						//if (selectedPanel != null) selectedPanel.setBackground(selectedPanel.getHighlightColor());
-						deselectAllPanels();
+						deselectAllRows();
 						selectionChanged = true;
 					}
 				}
 				if (debug) {
-					for (T panel : panels) {
-						if (panel.selected()) System.out.println("Selected panel " + panels.indexOf(panel));
+					for (int i : getSelectedIndexes()) {
+						System.out.println("Selected panel " + i);
 					}
 				}
-				updateSelection();
-				refreshSelectionPainting();
-				revalidateAndRepaint();
 
 				if (selectionChanged) {
 					fireSelectionListener();
@@ -1031,49 +4074,42 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 
 		@Override
 		public void mouseReleased(MouseEvent e) {
-			if (enableDragAndDrop && dragging && lastActivePanel != null) {
+			if (isDragReorderEnabled() && dragging && lastActiveIndex != -1) {
 				DropStatus dropStatus = checkDropLocation();
 				switch (dropStatus) {
 					case ABOVE:
-						if (debug) System.out.println("Dropped above panel " + panels.indexOf(targetPanel));
-						moveRows(targetPanel, selectedPanels, true);
-						if (actionListener != null) {
-							actionListener.actionPerformed(generateEvent(SELECTION_CHANGED));
-						}
+						if (debug) System.out.println("Dropped above panel " + targetIndex);
+						moveItems(getSelectedIndexes(), targetIndex);
+						fireSelectionListener();
 						break;
 					case BELOW:
-						if (debug) System.out.println("Dropped below panel " + panels.indexOf(targetPanel));
-						moveRows(targetPanel, selectedPanels, false);
-						if (actionListener != null) {
-							actionListener.actionPerformed(generateEvent(SELECTION_CHANGED));
-						}
+						if (debug) System.out.println("Dropped below panel " + targetIndex);
+						moveItems(getSelectedIndexes(), targetIndex + 1);
+						fireSelectionListener();
 						break;
 					case INVALID:
 						if (debug) System.out.println("Drop invalid");
 						break;
 				}
 			} else {
-				if (e.isControlDown() && panelToDeselectOnRelease != null) {
-					panelToDeselectOnRelease.unselect();
-					panelToDeselectOnRelease = null;
-					updateSelection();
-					refreshSelectionPainting();
+				if (e.isControlDown() && indexToDeselectOnRelease != -1) {
+					selectionModel.removeSelectionInterval(indexToDeselectOnRelease, indexToDeselectOnRelease);
+					indexToDeselectOnRelease = -1;
 					fireSelectionListener();
 				} else
-				if (panelToSelectOnRelease != null) {
-					singleSelection(panelToSelectOnRelease);
-					panelToSelectOnRelease = null;
-					updateSelection();
-					refreshSelectionPainting();
+				if (indexToSelectOnRelease != -1) {
+					singleSelection(indexToSelectOnRelease);
+					indexToSelectOnRelease = -1;
 					fireSelectionListener();
 				}
 			}
 			innerPanel.setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
 			scrollDown = false;
 			scrollUp = false;
+			updateAutoscroll();
 			dragging = false;
-			panelToSelectOnRelease = null; //Fixes the selection jumping after a drag, not sure why
-			revalidateAndRepaint();
+			indexToSelectOnRelease = -1; //Fixes the selection jumping after a drag, not sure why
+			updateDragFeedback();
 		}
 		
 		@Override
@@ -1093,18 +4129,18 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 		@Override
 		public void mouseDragged(MouseEvent e) {
 			mousePos.setLocation(e.getX(), e.getY());
-			if (enableDragAndDrop) {
+			if (isDragReorderEnabled()) {
 				if (!SwingUtilities.isLeftMouseButton(e)) {
 					return;
 				}
 				
-				if (selectedPanels.size() > 0) {
+				if (!selectionModel.isSelectionEmpty()) {
 					if (innerPanel.getCursor().getType() != Cursor.MOVE_CURSOR) {
 						innerPanel.setCursor(Cursor.getPredefinedCursor(Cursor.MOVE_CURSOR));
 					}		
 					
-					if (lastActivePanel != null && !lastActivePanel.getBounds().contains(mousePos)) {
-						if (debug) System.out.println("Dragging panel " + panels.indexOf(lastActivePanel));
+					if (lastActiveIndex != -1 && !rowContains(lastActiveIndex, mousePos)) {
+						if (debug) System.out.println("Dragging panel " + lastActiveIndex);
 						dragging = true;
 					} else {
 						dragging = false;
@@ -1147,8 +4183,9 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 				} else {
 					scrollUp = false;
 				}	
+				updateAutoscroll();
 				
-				revalidateAndRepaint();
+				updateDragFeedback();
 			}
 		}
 		
@@ -1159,33 +4196,73 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	
 	private class CustomListInnerPanel extends ScrollablePanel {
 		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public void doLayout() {
+			long start = startTiming();
+			super.doLayout();
+			rowOffsets.invalidate();
+			scheduleVisibilityUpdate();
+			stopTiming(DPanelListMetrics.Metric.LAYOUT, start);
+		}
+		
+		@Override
+		public void paint(Graphics g) {
+			long start = startTiming();
+			super.paint(g);
+			stopTiming(DPanelListMetrics.Metric.PAINT, start);
+		}
+
+		/**
+		 * Scratch objects reused by every paint call.
+		 */
+		private final Rectangle clipBounds = new Rectangle();
+		private final Line2D.Double dividerLine = new Line2D.Double();
 
 		@Override
 		public void paintComponent(Graphics g) {
 			super.paintComponent(g);
 			Graphics2D g2d = (Graphics2D) g;
 			g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-			//g2d.draw(new Line2D.Double(10.5, 10.5, 20.5, 20.5));
+			if (gridMode) {
+				paintCells(g2d);
+				return;
+			}
+			
+			RowOffsetIndex offsets = getRowOffsets();
+			if (offsets.isEmpty()) {
+				paintSectionHeaders(g);
+				return;
+			}
 			
-			if (dragging && lastActivePanel != null) {
+			//Only rows whose panel, gaps or divider can intersect the clip are painted
+			clipBounds.setBounds(0, 0, getWidth(), getHeight());
+			Rectangle clip = g.getClipBounds(clipBounds);
+			int top = offsets.rowAtY(clip.y);
+			int bottom = offsets.rowAtY(clip.y + clip.height);
+			int first = top == -1 ? offsets.getFirst() : Math.max(offsets.getFirst(), top - 1);
+			int last = bottom == -1 ? offsets.getFirst() : Math.min(offsets.getLast(), bottom + 1);
+
+			if (dragging && lastActiveIndex != -1) {
 				g2d.setColor(dropIndicator);
-				for (JPanel panel : panels) {
-					fillRect(getGapAbovePanel(panel), g2d);
-					fillRect(getGapBelowPanel(panel), g2d);	
+				for (int i = first; i <= last; i++) {
+					JPanel panel = panels.get(i);
+					if (panel == null) continue;
+					fillGapAbovePanel(panel, g2d);
+					fillGapBelowPanel(panel, g2d);
 				}
 			}
 					
-			for (int i = 0; i < panels.size(); i++) {
+			for (int i = first; i <= last; i++) {
 				T panel = panels.get(i);
+				if (panel == null) continue;
 				
 				//Selection indicator
 				if (paintBorderOutside) {
 					if (selectionMode != SelectionMode.UNSELECTION_FORCED) {
 						if (panel.selected()) {
 							g2d.setColor(dropHighlight);
-							Rectangle rect = panel.getBounds();
-							rect.setBounds(rect.x - sideGap, rect.y, rect.width + sideGap *2, rect.height);
-							fillRect(rect, g2d);
+							g2d.fillRect(panel.getX() - sideGap, panel.getY(), panel.getWidth() + sideGap *2, panel.getHeight());
 						}
 					}
 				}
@@ -1193,53 +4270,92 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 				//Dividers
 				g2d.setColor(dividerColor);				
 				if (i != 0) {
-					Rectangle rect = panel.getBounds();
-					double off = gap / 2.0d;
-					Line2D.Double line = new Line2D.Double(rect.x - sideGap, rect.y - off, sideGap + rect.width + sideGap, rect.y - off);
-					g2d.draw(line);
+					double y = panel.getY() - gap / 2.0d;
+					dividerLine.setLine(panel.getX() - sideGap, y, sideGap + panel.getWidth() + sideGap, y);
+					g2d.draw(dividerLine);
 				}
 				if (i == panels.size() - 1) {
-					fillRect(getGapBelowPanel(panels.get(i)), g2d);
+					fillGapBelowPanel(panel, g2d);
 				}
 			}
+			//Headers cover the dividers and gap fills of the rows next to them
+			paintSectionHeaders(g);
 			
 			g2d.setColor(dropHighlight);
 			DropStatus dropStatus = checkDropLocation();
 			switch (dropStatus) {
 				case ABOVE:
-					fillRect(getGapAbovePanel(targetPanel), g2d);
+					fillGapAbovePanel(panels.get(targetIndex), g2d);
 					break;
 				case BELOW:
-					fillRect(getGapBelowPanel(targetPanel), g2d);
+					fillGapBelowPanel(panels.get(targetIndex), g2d);
 					break;
 				case INVALID:
 					break;
 			}
 		}
 		
-		private void fillRect(Rectangle rect, Graphics2D g2d) {
-			g2d.fillRect(rect.x, rect.y, rect.width, rect.height);
+		/**
+		 * Paints the drop locations, the outside selection border and the drop indicator around the cells in grid mode. There are no dividers.
+		 */
+		private void paintCells(Graphics2D g2d) {
+			if (rows.isEmpty()) return;
+			clipBounds.setBounds(0, 0, getWidth(), getHeight());
+			Rectangle clip = g2d.getClipBounds(clipBounds);
+			int columns = rowLayout.getColumns(this);
+			int first = Math.max(firstMaterializedRow(), rowLayout.rowAtY(this, clip.y - gap));
+			int last = (int) Math.min(lastMaterializedRow(), rowLayout.rowAtY(this, clip.y + clip.height) + (long) columns * 2 - 1);
+			boolean dropping = dragging && lastActiveIndex != -1;
+			for (int i = first; i <= last; i++) {
+				T panel = panels.get(i);
+				if (panel == null) continue;
+				if (dropping) {
+					g2d.setColor(dropIndicator);
+					g2d.fillRect(panel.getX() - gap, panel.getY(), gap, panel.getHeight());
+					g2d.fillRect(panel.getX() + panel.getWidth(), panel.getY(), gap, panel.getHeight());
+				}
+				if (paintBorderOutside && selectionMode != SelectionMode.UNSELECTION_FORCED && panel.selected()) {
+					g2d.setColor(dropHighlight);
+					g2d.fillRect(panel.getX() - gap, panel.getY() - gap, panel.getWidth() + gap * 2, panel.getHeight() + gap * 2);
+				}
+			}
+			Rectangle indicator = getDropIndicatorBounds();
+			if (indicator != null) {
+				g2d.setColor(dropHighlight);
+				g2d.fill(indicator);
+			}
+		}
+		
+		@Override
+		protected void paintChildren(Graphics g) {
+			super.paintChildren(g);
+			paintStickyHeader(g);
+			if (dragImage != null && dragImageBounds != null) {
+				Graphics2D g2d = (Graphics2D) g.create();
+				try {
+					g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, DRAG_IMAGE_ALPHA));
+					g2d.drawImage(dragImage, dragImageBounds.x, dragImageBounds.y, dragImageBounds.width, dragImageBounds.height, null);
+				} finally {
+					g2d.dispose();
+				}
+			}
+		}
+		
+		/**
+		 * Rows repainting themselves have to go through this panel while the drag image or a sticky header overlaps them.
+		 */
+		@Override
+		public boolean isOptimizedDrawingEnabled() {
+			return dragImage == null && sectionKey == null;
+		}
+		
+		private void fillGapAbovePanel(JPanel panel, Graphics2D g2d) {
+			g2d.fillRect(panel.getX() - sideGap, panel.getY() - gap, panel.getWidth() + sideGap*2, gap);
+		}
+		
+		private void fillGapBelowPanel(JPanel panel, Graphics2D g2d) {
+			g2d.fillRect(panel.getX() - sideGap, panel.getY() + panel.getHeight(), panel.getWidth() + sideGap*2, gap);
 		}
-	}
-	
-	private Rectangle getGapAboveFirstPanel(JPanel panel) {
-		Rectangle bounds = panel.getBounds();
-		return new Rectangle(bounds.x - sideGap, bounds.y - lastGap, bounds.width + sideGap*2, lastGap);
-	}
-	
-	private Rectangle getGapAbovePanel(JPanel panel) {
-		Rectangle bounds = panel.getBounds();
-		return new Rectangle(bounds.x - sideGap, bounds.y - gap, bounds.width + sideGap*2, gap);
-	}
-	
-	private Rectangle getGapBelowPanel(JPanel panel) {
-		Rectangle bounds = panel.getBounds();
-		return new Rectangle(bounds.x - sideGap, bounds.y + bounds.height, bounds.width + sideGap*2, gap);
-	}
-	
-	private Rectangle getGapBelowLastPanel(JPanel panel) {
-		Rectangle bounds = panel.getBounds();
-		return new Rectangle(bounds.x - sideGap, bounds.y + bounds.height, bounds.width + sideGap*2, lastGap);
 	}
 	
 	private Rectangle getUpperScrollBounds() {
@@ -1356,6 +4472,8 @@ public class DPanelList<V, T extends DPanelListItem<V>> extends JScrollPane {
 	
 	public void setHighlightBorder(Border b) {
 		this.highlightBorder = b;
+		this.unselectedBorder = null;
+		repaintSelectionIndicators();
 	}
 	
 	public void setBackground(Color c) {
@@ -0,0 +1,173 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Event describing everything that happened to the rows and the selection of a {@link DPanelList} during one turn of the event dispatch thread.
+ * <br><br>
+ * Structure changes are reported as a sequence of {@link Change}s. Each change uses the row indexes as they were right before it was applied,
+ * so replaying the changes in order on a copy of the previous rows (or on data indexed by row) yields the current rows.
+ * A listener therefore only has to process the changed ranges instead of reading the whole list again.
+ * <br><br>
+ * The selection delta compares the selection at the time of the previous event with the current selection, both in terms of the current rows.
+ * Selected rows that were removed are not reported as deselected, they are part of a {@link Type#REMOVED} change.
+ *
+ * @author DUDSS
+ */
+public class DPanelListEvent extends EventObject {
+	private static final long serialVersionUID = 1L;
+
+	public enum Type {
+		/**
+		 * Rows were inserted into the range [index0, index1].
+		 */
+		ADDED,
+		/**
+		 * Rows that occupied the range [index0, index1] were removed.
+		 */
+		REMOVED,
+		/**
+		 * The rows in the range [index0, index1] were reordered, see {@link Change#newIndexOf(int)}.
+		 */
+		MOVED,
+		/**
+		 * The rows in the range [index0, index1] were replaced or their contents changed.
+		 */
+		UPDATED
+	}
+
+	/**
+	 * A single change of a range of rows.
+	 */
+	public static final class Change {
+		private final Type type;
+		private final int index0;
+		private final int index1;
+		private final IntUnaryOperator permutation;
+
+		Change(Type type, int index0, int index1) {
+			this(type, index0, index1, null);
+		}
+
+		/**
+		 * @param permutation Maps the indexes of the range before a move to their indexes after it.
+		 */
+		Change(Type type, int index0, int index1, IntUnaryOperator permutation) {
+			this.type = type;
+			this.index0 = index0;
+			this.index1 = index1;
+			this.permutation = permutation;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		public int getIndex0() {
+			return index0;
+		}
+
+		public int getIndex1() {
+			return index1;
+		}
+
+		/**
+		 * Returns the number of rows in the affected range.
+		 */
+		public int getLength() {
+			return index1 - index0 + 1;
+		}
+
+		/**
+		 * Returns the index the row at the specified index has after this change.
+		 * Rows outside of the range of a {@link Type#MOVED} change keep their index, removed rows return -1.
+		 */
+		public int newIndexOf(int oldIndex) {
+			switch (type) {
+				case ADDED:
+					return oldIndex >= index0 ? oldIndex + getLength() : oldIndex;
+				case REMOVED:
+					if (oldIndex > index1) return oldIndex - getLength();
+					return oldIndex >= index0 ? -1 : oldIndex;
+				case MOVED:
+					return oldIndex >= index0 && oldIndex <= index1 ? permutation.applyAsInt(oldIndex) : oldIndex;
+				default:
+					return oldIndex;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return type + " [" + index0 + ", " + index1 + "]";
+		}
+	}
+
+	private final List<Change> changes;
+	private final BitSet selected;
+	private final BitSet deselected;
+
+	/**
+	 * @param source The list that changed.
+	 * @param changes The structure changes in the order they were applied.
+	 * @param selected The rows that got selected.
+	 * @param deselected The rows that are no longer selected.
+	 */
+	DPanelListEvent(Object source, List<Change> changes, BitSet selected, BitSet deselected) {
+		super(source);
+		this.changes = Collections.unmodifiableList(changes);
+		this.selected = selected;
+		this.deselected = deselected;
+	}
+
+	/**
+	 * Returns the structure changes in the order they were applied, empty if only the selection changed.
+	 */
+	public List<Change> getChanges() {
+		return changes;
+	}
+
+	/**
+	 * Whether rows were added, removed, moved or updated.
+	 */
+	public boolean isStructureChanged() {
+		return !changes.isEmpty();
+	}
+
+	public boolean isSelectionChanged() {
+		return !selected.isEmpty() || !deselected.isEmpty();
+	}
+
+	/**
+	 * Returns the indexes of the rows that got selected in ascending order.
+	 */
+	public int[] getSelectedIndexes() {
+		return selected.stream().toArray();
+	}
+
+	/**
+	 * Returns the indexes of the rows that are no longer selected in ascending order.
+	 */
+	public int[] getDeselectedIndexes() {
+		return deselected.stream().toArray();
+	}
+
+	/**
+	 * Returns the index a row of the list at the time of the previous event has now, or -1 if it was removed.
+	 */
+	public int newIndexOf(int oldIndex) {
+		int index = oldIndex;
+		for (int i = 0; i < changes.size() && index != -1; i++) {
+			index = changes.get(i).newIndexOf(index);
+		}
+		return index;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getName() + "[changes=" + changes + ",selected=" + selected + ",deselected=" + deselected + "]";
+	}
+}
@@ -2,6 +2,7 @@ package net.dudss.dcomponents.components.panellist;
 
 import java.awt.Component;
 import java.util.List;
+import java.util.function.Function;
 
 import javax.swing.UIManager;
 
@@ -16,4 +17,15 @@ public class DPanelListFactory {
 		DPanelList<V, T> dPanelList= new DPanelList<V, T>(objectList, panelClass, selectionMode, enableDragAndDrop, paintBackgroundOnSelection, true, headerComponent);
 		return dPanelList;
 	}
+	
+	public static <V, T extends DPanelListItem<V>> DPanelList<V, T> listDesign(List<V> objectList, Function<V, T> panelFactory, DPanelList.SelectionMode selectionMode, boolean enableDragAndDrop, boolean paintBackgroundOnSelection, Component headerComponent) {
+		DPanelList<V, T> dPanelList= new DPanelList<V, T>(objectList, panelFactory, selectionMode, enableDragAndDrop, paintBackgroundOnSelection, true, headerComponent, 1, 0);
+		dPanelList.setBackground(UIManager.getColor("List.background"));
+		return dPanelList;
+	}
+	
+	public static <V, T extends DPanelListItem<V>> DPanelList<V, T> defaultDesign(List<V> objectList, Function<V, T> panelFactory, DPanelList.SelectionMode selectionMode, boolean enableDragAndDrop, boolean paintBackgroundOnSelection, Component headerComponent) {
+		DPanelList<V, T> dPanelList= new DPanelList<V, T>(objectList, panelFactory, selectionMode, enableDragAndDrop, paintBackgroundOnSelection, true, headerComponent);
+		return dPanelList;
+	}
 }
@@ -15,6 +15,9 @@ import javax.swing.UIManager;
  * - updateSelection() = method called on selection change that can be used to paint custom selection
  * - selected() 	   = check if the panel is selected
  * - index()           = retrieve index of the panel in its panel list
+ * - rebind()          = method called when the panel is reused for another object in a virtualized list
+ * - onShown()         = method called when the panel scrolls into view, e.g. to start loading expensive content
+ * - onHidden()        = method called when the panel scrolls out of view or stops representing its object
  * 
  * - getBackgroundColor()
  * - getSelectionBackgroundColor
@@ -40,6 +43,11 @@ public abstract class DPanelListItem<V> extends JPanel {
 	 */
 	private boolean selected = false;
 	
+	/**
+	 * Flag used to determine whether this panel is currently inside the viewport of the {@link DPanelList}.
+	 */
+	private boolean shown = false;
+	
 	/**
 	 * Creates a new panel list item that will represent the specified object.
 	 * @param object Reference to an object it is representing within the {@link DPanelList} component.
@@ -54,6 +62,35 @@ public abstract class DPanelListItem<V> extends JPanel {
 	 */
 	public abstract void updateComponents(boolean selected);
 	
+	/**
+	 * Method called when a virtualized {@link DPanelList} reuses this panel to represent a different object.
+	 * The default implementation only replaces the {@link #object} reference. Subclasses that keep state derived
+	 * from the represented object should override this method and reset that state.
+	 * {@link #updateComponents(boolean)} is called right after.
+	 * @param object The object this panel is going to represent from now on.
+	 */
+	protected void rebind(V object) {
+		this.object = object;
+	}
+	
+	/**
+	 * Method called when the panel enters the viewport of the {@link DPanelList}, extended by its visibility overscan.
+	 * This is the place to start loading expensive content such as images instead of {@link #updateComponents(boolean)}.
+	 * While the list is scrolled quickly the call is delayed until scrolling settles, so rows that are only flung past are not shown at all.
+	 * The default implementation does nothing.
+	 * @see DPanelList#setVisibilityOverscan(int)
+	 */
+	protected void onShown() {
+	}
+	
+	/**
+	 * Method called when the panel leaves the viewport, is removed from the {@link DPanelList} or is about to be rebound to another object.
+	 * This is the place to cancel loads started by {@link #onShown()} and to release heavy resources.
+	 * The default implementation does nothing.
+	 */
+	protected void onHidden() {
+	}
+	
 	/**
 	 * Method called when panel selection changes and selection highlights (background/foregrounds) need updating.
 	 * This is the place to change panel specific selection foreground.
@@ -92,6 +129,17 @@ public abstract class DPanelListItem<V> extends JPanel {
 	void unselect() {this.selected = false;}
 	protected boolean selected() {return this.selected;}
 	
+	void setShown(boolean shown) {
+		if (this.shown == shown) return;
+		this.shown = shown;
+		if (shown) {
+			onShown();
+		} else {
+			onHidden();
+		}
+	}
+	protected boolean shown() {return this.shown;}
+	
 	void setIndex(int index) {this.index = index;}
 	protected int index() {
 		return this.index;
@@ -0,0 +1,422 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.LayoutManager2;
+import java.awt.Rectangle;
+
+import javax.swing.JViewport;
+
+/**
+ * Layout of the inner panel of a {@link DPanelList}.
+ * <br><br>
+ * Rows are stacked on top of each other, separated by the gap of the list and indented by its side gap on both sides.
+ * Every row spans the full width and gets the preferred height of its panel at that width. No space is reserved
+ * below the last row, the last gap of the list only extends the drop area there.
+ * <br><br>
+ * Heights are measured once and cached in a {@link RowHeightCache}, rows that were never measured count with an estimated height.
+ * A panel that invalidates itself, for example after its content changed, is measured again.
+ * Only rows in or near the viewport get measured and resized, all other rows are merely moved to their position so that
+ * resizing the list does not lay out every panel. Rows are laid out as soon as they get close to the viewport.
+ * <br><br>
+ * In virtualized mode only the rows that are currently backed by a panel get positioned, but the preferred size
+ * always covers every row of the list so that the scroll bar extent stays correct. A fixed row height replaces the measured heights.
+ * <br><br>
+ * In grid mode the rows are flowed into as many columns of equally sized cells as fit into the width, separated by the gap in both directions.
+ * The position of a cell and the cell at a point are computed from its index, so only the materialized cells are touched by a layout pass.
+ * <br><br>
+ * In sectioned mode the header of each section takes up space in front of the first row of the section. The headers are not components,
+ * they are painted by the list into that space.
+ *
+ * @author DUDSS
+ */
+class DPanelListLayout implements LayoutManager2 {
+	private final DPanelList<?, ?> list;
+
+	/**
+	 * Range of y coordinates covered by the rows that were laid out by the last layout pass in regular mode.
+	 */
+	private int laidOutTop = 0;
+	private int laidOutBottom = -1;
+
+	/**
+	 * Largest preferred width of the rows, updated whenever a row is measured.
+	 * It is measured again once the row it was taken from shrinks, changes or is removed, so the width can also decrease.
+	 */
+	private int preferredWidth = 0;
+	private boolean preferredWidthValid = false;
+	private Object widestRow = null;
+	
+	/**
+	 * Number of grid columns the last preferred size was computed with.
+	 */
+	private int preferredColumns = -1;
+
+	DPanelListLayout(DPanelList<?, ?> list) {
+		this.list = list;
+	}
+
+	@Override
+	public void addLayoutComponent(String name, Component comp) {
+		// Nothing to do
+	}
+
+	@Override
+	public void addLayoutComponent(Component comp, Object constraints) {
+		// Nothing to do
+	}
+
+	@Override
+	public void removeLayoutComponent(Component comp) {
+		// Nothing to do
+	}
+
+	@Override
+	public void invalidateLayout(Container target) {
+		// Heights are invalidated by the list and the rows themselves
+	}
+
+	@Override
+	public float getLayoutAlignmentX(Container target) {
+		return 0.5f;
+	}
+
+	@Override
+	public float getLayoutAlignmentY(Container target) {
+		return 0.5f;
+	}
+
+	/**
+	 * Makes the next preferred size computation measure the preferred width of all rows again.
+	 */
+	void invalidatePreferredWidth() {
+		preferredWidthValid = false;
+	}
+
+	/**
+	 * Called for the objects of rows that were removed or changed, the preferred width is measured again if one of them was the widest row.
+	 */
+	void rowDiscarded(Object object) {
+		if (object == widestRow) {
+			preferredWidthValid = false;
+		}
+	}
+
+	@Override
+	public Dimension preferredLayoutSize(Container parent) {
+		Insets insets = parent.getInsets();
+		if (list.isGridMode()) {
+			preferredColumns = getColumns(parent);
+			int gridRows = (list.getRowCount() + preferredColumns - 1) / preferredColumns;
+			long height = Math.max(0, (long) gridRows * (list.getCellHeight() + list.getGap()) - list.getGap());
+			height = Math.min(height, Integer.MAX_VALUE - insets.top - insets.bottom);
+			return new Dimension(list.getCellWidth() + list.getSideGap() * 2 + insets.left + insets.right, (int) height + insets.top + insets.bottom);
+		}
+		if (!preferredWidthValid) {
+			preferredWidth = 0;
+			widestRow = null;
+			for (int i = list.firstMaterializedRow(); i <= list.lastMaterializedRow(); i++) {
+				Component panel = list.getRowPanel(i);
+				if (panel != null && panel.getPreferredSize().width > preferredWidth) {
+					preferredWidth = panel.getPreferredSize().width;
+					widestRow = list.getRowObject(i);
+				}
+			}
+			//In virtualized mode the width is only known once rows get materialized
+			preferredWidthValid = list.getRowCount() == 0 || preferredWidth > 0;
+		}
+		int rowCount = list.getRowCount();
+		long height = 0;
+		if (rowCount > 0) {
+			RowHeightCache heights = list.getRowHeights(getRowWidth(parent));
+			height = heights != null ? heights.getTotalHeight() : (long) rowCount * list.getVirtualRowHeight();
+			height += (long) (rowCount - 1) * list.getGap();
+		}
+		SectionIndex sections = list.getSections();
+		if (sections != null && !sections.isEmpty()) {
+			height += (long) sections.size() * list.getSectionHeaderHeight();
+			if (rowCount > 0 && sections.getAnchor(sections.size() - 1) == rowCount) {
+				//Headers below the last row are separated from it by a gap
+				height += list.getGap();
+			}
+		}
+		height = Math.min(height, Integer.MAX_VALUE - insets.top - insets.bottom);
+		return new Dimension(preferredWidth + list.getSideGap() * 2 + insets.left + insets.right, (int) height + insets.top + insets.bottom);
+	}
+
+	@Override
+	public Dimension minimumLayoutSize(Container parent) {
+		Insets insets = parent.getInsets();
+		return new Dimension(list.getSideGap() * 2 + insets.left + insets.right, insets.top + insets.bottom);
+	}
+
+	@Override
+	public Dimension maximumLayoutSize(Container target) {
+		return new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Measures the panels of rows whose height is not cached yet and positions the panels of the materialized rows.
+	 */
+	@Override
+	public void layoutContainer(Container parent) {
+		Insets insets = parent.getInsets();
+		int x = insets.left + list.getSideGap();
+		int width = getRowWidth(parent);
+		RowHeightCache heights = list.getRowHeights(width);
+		int rowCount = list.getRowCount();
+		if (rowCount == 0) {
+			laidOutTop = 0;
+			laidOutBottom = -1;
+			return;
+		}
+		if (list.isGridMode()) {
+			layoutCells(parent);
+			return;
+		}
+		int first = list.firstMaterializedRow();
+		int last = list.lastMaterializedRow();
+		boolean changed = false;
+		if (!list.isVirtualized()) {
+			//Measure the rows near the viewport until the measured heights no longer move other rows into it
+			Rectangle area = getLayoutArea(parent);
+			if (!heights.hasMeasurements()) {
+				//Get a realistic estimate before deciding which rows are near the viewport
+				changed = measureRows(heights, 0, 0, width);
+			}
+			int previousFirst = -1;
+			int previousLast = -1;
+			for (int pass = 0; pass < 4; pass++) {
+				first = rowAtY(parent, area.y);
+				last = rowAtY(parent, area.y + area.height);
+				if (first == previousFirst && last == previousLast) break;
+				changed |= measureRows(heights, first, last, width);
+				previousFirst = first;
+				previousLast = last;
+			}
+			laidOutTop = area.y;
+			laidOutBottom = area.y + area.height;
+		} else if (heights != null) {
+			changed = measureRows(heights, first, last, width);
+		}
+		if (changed) {
+			list.rowHeightsChanged();
+		}
+
+		int rowHeight = list.getVirtualRowHeight();
+		for (int i = list.firstMaterializedRow(); i <= list.lastMaterializedRow(); i++) {
+			Component panel = list.getRowPanel(i);
+			if (panel == null) continue;
+			int y = insets.top + getRowY(i, heights);
+			if (i >= first && i <= last) {
+				panel.setBounds(x, y, width, heights != null ? heights.getHeight(i) : rowHeight);
+			} else {
+				//Keep the size so that the panel is not laid out until it gets close to the viewport
+				if (!panel.isValid() && heights != null) {
+					heights.invalidate(list.getRowObject(i));
+				}
+				if (panel.getX() != x || panel.getY() != y) {
+					panel.setLocation(x, y);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Positions the panels of the materialized cells in grid mode.
+	 */
+	private void layoutCells(Container parent) {
+		if (getColumns(parent) != preferredColumns) {
+			//The height of the grid depends on the number of columns
+			list.rowHeightsChanged();
+		}
+		for (int i = list.firstMaterializedRow(); i <= list.lastMaterializedRow(); i++) {
+			Component panel = list.getRowPanel(i);
+			if (panel != null) {
+				panel.setBounds(getRowBounds(parent, i));
+			}
+		}
+	}
+	
+	/**
+	 * Measures the rows in the range [first, last] whose height is unknown or whose panel has been invalidated.
+	 * @return Whether the height of any row changed.
+	 */
+	private boolean measureRows(RowHeightCache heights, int first, int last, int width) {
+		if (heights == null) return false;
+		boolean changed = false;
+		for (int i = first; i <= last; i++) {
+			Component panel = list.getRowPanel(i);
+			Object object = list.getRowObject(i);
+			if (panel != null && (!heights.isMeasured(object) || !panel.isValid())) {
+				//Let width dependent content such as wrapping text compute its height for the row width
+				panel.setSize(width, panel.getHeight() > 0 ? panel.getHeight() : heights.getHeight(i));
+				Dimension preferred = panel.getPreferredSize();
+				changed |= heights.setHeight(i, object, Math.max(1, preferred.height));
+				if (preferred.width > preferredWidth) {
+					preferredWidth = preferred.width;
+					widestRow = object;
+				} else if (object == widestRow && preferred.width < preferredWidth) {
+					preferredWidthValid = false;
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns the area whose rows are laid out in regular mode, the visible part of the list extended by its height above and below.
+	 */
+	private Rectangle getLayoutArea(Container parent) {
+		if (parent.getParent() instanceof JViewport) {
+			Rectangle view = ((JViewport) parent.getParent()).getViewRect();
+			int margin = Math.max(view.height, 1);
+			return new Rectangle(0, Math.max(0, view.y - margin), parent.getWidth(), view.height + margin * 2);
+		}
+		return new Rectangle(0, 0, parent.getWidth(), parent.getHeight());
+	}
+
+	/**
+	 * Whether the rows in the view rectangle have been laid out by the last layout pass in regular mode.
+	 */
+	boolean coversView(Rectangle view) {
+		return view.y >= laidOutTop && view.y + view.height <= laidOutBottom;
+	}
+
+	int getRowX(Container parent) {
+		return parent.getInsets().left + list.getSideGap();
+	}
+
+	int getRowWidth(Container parent) {
+		Insets insets = parent.getInsets();
+		return Math.max(1, parent.getWidth() - insets.left - insets.right - list.getSideGap() * 2);
+	}
+	
+	/**
+	 * Returns the number of cells that fit next to each other in grid mode, 1 otherwise.
+	 */
+	int getColumns(Container parent) {
+		if (!list.isGridMode()) return 1;
+		return Math.max(1, (getRowWidth(parent) + list.getGap()) / (list.getCellWidth() + list.getGap()));
+	}
+
+	/**
+	 * Returns the y coordinate of a row relative to the top insets.
+	 * @param heights The variable row heights or null if all rows have the same height.
+	 */
+	private int getRowY(int index, RowHeightCache heights) {
+		long y = getContentY(index, heights);
+		SectionIndex sections = list.getSections();
+		if (sections != null) {
+			y += (long) sections.headersBefore(index) * list.getSectionHeaderHeight();
+		}
+		return (int) Math.min(y, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the y coordinate of a row relative to the top insets without the section headers above it.
+	 */
+	private long getContentY(int index, RowHeightCache heights) {
+		return heights != null ? heights.getTop(index) + (long) index * list.getGap() : (long) index * (list.getVirtualRowHeight() + list.getGap());
+	}
+
+	/**
+	 * Returns the y coordinate of the header of a section in sectioned mode.
+	 */
+	int getSectionY(Container parent, int section) {
+		SectionIndex sections = list.getSections();
+		RowHeightCache heights = list.getRowHeights(getRowWidth(parent));
+		long y = getContentY(sections.getAnchor(section), heights) + (long) section * list.getSectionHeaderHeight();
+		return parent.getInsets().top + (int) Math.min(y, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the last section whose header starts at or above the specified y coordinate in sectioned mode, -1 if there is none.
+	 */
+	int sectionAtY(Container parent, int y) {
+		SectionIndex sections = list.getSections();
+		if (sections == null) return -1;
+		int low = 0;
+		int high = sections.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getSectionY(parent, mid) <= y) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * Returns the bounds the row at the specified index occupies, regardless of whether its panel has been laid out.
+	 */
+	Rectangle getRowBounds(Container parent, int index) {
+		Insets insets = parent.getInsets();
+		if (list.isGridMode()) {
+			int columns = getColumns(parent);
+			int cellWidth = list.getCellWidth();
+			int cellHeight = list.getCellHeight();
+			long y = (long) (index / columns) * (cellHeight + list.getGap());
+			int x = (index % columns) * (cellWidth + list.getGap());
+			return new Rectangle(insets.left + list.getSideGap() + x, insets.top + (int) Math.min(y, Integer.MAX_VALUE), cellWidth, cellHeight);
+		}
+		int width = getRowWidth(parent);
+		RowHeightCache heights = list.getRowHeights(width);
+		int height = heights != null ? heights.getHeight(index) : list.getVirtualRowHeight();
+		return new Rectangle(insets.left + list.getSideGap(), insets.top + getRowY(index, heights), width, height);
+	}
+
+	/**
+	 * Returns the index of the row at the specified y coordinate, clamped to the existing rows.
+	 * In grid mode this is the first cell of the grid row at the coordinate.
+	 */
+	int rowAtY(Container parent, int y) {
+		int rowCount = list.getRowCount();
+		if (rowCount == 0) return -1;
+		int offset = Math.max(0, y - parent.getInsets().top);
+		if (list.isGridMode()) {
+			int columns = getColumns(parent);
+			long index = (long) (offset / (list.getCellHeight() + list.getGap())) * columns;
+			return (int) Math.min(index, (rowCount - 1) / columns * columns);
+		}
+		SectionIndex sections = list.getSections();
+		int section = sections != null ? sectionAtY(parent, y) : -1;
+		if (section != -1) {
+			offset = Math.max(0, offset - (section + 1) * list.getSectionHeaderHeight());
+		}
+		RowHeightCache heights = list.getRowHeights(getRowWidth(parent));
+		int index = heights != null ? heights.rowAtY(offset, list.getGap()) : Math.min(offset / (list.getVirtualRowHeight() + list.getGap()), rowCount - 1);
+		if (section != -1) {
+			//A coordinate in a header belongs to the row below it
+			int next = section + 1 < sections.size() ? sections.getAnchor(section + 1) : rowCount;
+			index = Math.max(sections.getAnchor(section), Math.min(index, next - 1));
+			index = Math.min(index, rowCount - 1);
+		}
+		return index;
+	}
+	
+	/**
+	 * Returns the index of the grid cell at the specified point or -1 if there is none.
+	 * @param includeGaps Whether the gaps right of and below a cell count as part of it.
+	 */
+	int cellAt(Container parent, int x, int y, boolean includeGaps) {
+		int rowCount = list.getRowCount();
+		if (rowCount == 0) return -1;
+		Insets insets = parent.getInsets();
+		int dx = x - insets.left - list.getSideGap();
+		int dy = y - insets.top;
+		if (dx < 0 || dy < 0) return -1;
+		int pitchX = list.getCellWidth() + list.getGap();
+		int pitchY = list.getCellHeight() + list.getGap();
+		int columns = getColumns(parent);
+		int column = dx / pitchX;
+		if (column >= columns) return -1;
+		if (!includeGaps && (dx % pitchX >= list.getCellWidth() || dy % pitchY >= list.getCellHeight())) return -1;
+		long index = (long) (dy / pitchY) * columns + column;
+		return index < rowCount ? (int) index : -1;
+	}
+}
@@ -0,0 +1,15 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.EventListener;
+
+/**
+ * Listener notified about changes of the rows and the selection of a {@link DPanelList}.
+ * @author DUDSS
+ */
+public interface DPanelListListener extends EventListener {
+	/**
+	 * Called on the event dispatch thread once per turn in which the rows or the selection changed.
+	 * @param e The changes collected during the turn.
+	 */
+	void listChanged(DPanelListEvent e);
+}
@@ -0,0 +1,333 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.swing.event.EventListenerList;
+
+/**
+ * Timings of the work done by a {@link DPanelList}, recorded while its instrumentation is enabled, see {@link DPanelList#setMetricsEnabled(boolean)}.
+ * <br><br>
+ * For every {@link Metric} the number of samples, their total and maximum duration, a histogram and the most recent samples are kept.
+ * The histogram has a bucket for every power of two, bucket {@code k} counts the samples of at least 2<sup>k-1</sup> and less than 2<sup>k</sup> nanoseconds.
+ * Operations can contain each other, the samples of a refresh for example include the diff and the creation of panels.
+ * <br><br>
+ * Samples are recorded on the event dispatch thread. The getters can be called from any thread and return copies.
+ * The same values are published as attributes of a JMX MBean in the domain {@value #JMX_DOMAIN} while the list is displayable.
+ *
+ * @author DUDSS
+ */
+public final class DPanelListMetrics {
+	/**
+	 * The measured operations.
+	 */
+	public enum Metric {
+		/**
+		 * A call of {@link DPanelList#refresh()} or one chunk of {@link DPanelList#refreshAsync()} applied on the event dispatch thread.
+		 */
+		REFRESH("Refresh"),
+		/**
+		 * Matching of the rows to a snapshot of the list during a refresh. Measured on the worker thread for asynchronous refreshes.
+		 */
+		DIFF("Diff"),
+		/**
+		 * Construction of a single panel by the panel factory.
+		 */
+		PANEL_CREATION("PanelCreation"),
+		/**
+		 * Layout of the rows.
+		 */
+		LAYOUT("Layout"),
+		/**
+		 * Painting of the rows including their panels.
+		 */
+		PAINT("Paint"),
+		/**
+		 * Notification of the listeners of the list.
+		 */
+		EVENT_DISPATCH("EventDispatch");
+
+		private final String attributeName;
+
+		private Metric(String attributeName) {
+			this.attributeName = attributeName;
+		}
+	}
+
+	public static final String JMX_DOMAIN = "net.dudss.dcomponents";
+
+	/**
+	 * Number of histogram buckets, enough for any positive duration in nanoseconds.
+	 */
+	public static final int HISTOGRAM_BUCKETS = 64;
+
+	private static final String[] ATTRIBUTE_SUFFIXES = {"Count", "TotalNanos", "MaxNanos", "MeanNanos", "Histogram", "RecentSamples"};
+
+	private static final AtomicInteger nextId = new AtomicInteger();
+
+	/**
+	 * Unique number of this instance, part of the MBean name.
+	 */
+	private final int id = nextId.incrementAndGet();
+	private final Recorder[] recorders = new Recorder[Metric.values().length];
+	private final EventListenerList listenerList = new EventListenerList();
+	private ObjectName objectName;
+
+	/**
+	 * @param recentSamples Number of most recent samples kept per metric.
+	 */
+	DPanelListMetrics(int recentSamples) {
+		for (int i = 0; i < recorders.length; i++) {
+			recorders[i] = new Recorder(recentSamples);
+		}
+	}
+
+	/**
+	 * Adds a sample and notifies the listeners.
+	 */
+	void record(Metric metric, long nanos) {
+		Recorder recorder = recorders[metric.ordinal()];
+		synchronized (this) {
+			recorder.add(nanos);
+		}
+		Object[] listeners = listenerList.getListenerList();
+		for (int i = listeners.length - 2; i >= 0; i -= 2) {
+			if (listeners[i] == DPanelListMetricsListener.class) {
+				((DPanelListMetricsListener) listeners[i + 1]).sampleRecorded(metric, nanos);
+			}
+		}
+	}
+
+	public synchronized long getCount(Metric metric) {
+		return recorders[metric.ordinal()].count;
+	}
+
+	public synchronized long getTotalNanos(Metric metric) {
+		return recorders[metric.ordinal()].total;
+	}
+
+	public synchronized long getMaxNanos(Metric metric) {
+		return recorders[metric.ordinal()].max;
+	}
+
+	/**
+	 * Returns the average duration or 0 if there are no samples.
+	 */
+	public synchronized long getMeanNanos(Metric metric) {
+		Recorder recorder = recorders[metric.ordinal()];
+		return recorder.count > 0 ? recorder.total / recorder.count : 0;
+	}
+
+	/**
+	 * Returns the number of samples in each of the {@value #HISTOGRAM_BUCKETS} buckets, see {@link #getBucket(long)}.
+	 */
+	public synchronized long[] getHistogram(Metric metric) {
+		return recorders[metric.ordinal()].histogram.clone();
+	}
+
+	/**
+	 * Returns the most recent samples in nanoseconds, the oldest first.
+	 */
+	public synchronized long[] getRecentSamples(Metric metric) {
+		return recorders[metric.ordinal()].getRecentSamples();
+	}
+
+	/**
+	 * Returns the histogram bucket a duration is counted in, the number of significant bits of the duration.
+	 */
+	public static int getBucket(long nanos) {
+		return 64 - Long.numberOfLeadingZeros(Math.max(0, nanos));
+	}
+
+	/**
+	 * Discards all samples.
+	 */
+	public synchronized void reset() {
+		for (Recorder recorder : recorders) {
+			recorder.clear();
+		}
+	}
+
+	public void addMetricsListener(DPanelListMetricsListener listener) {
+		listenerList.add(DPanelListMetricsListener.class, listener);
+	}
+
+	public void removeMetricsListener(DPanelListMetricsListener listener) {
+		listenerList.remove(DPanelListMetricsListener.class, listener);
+	}
+
+	public DPanelListMetricsListener[] getMetricsListeners() {
+		return listenerList.getListeners(DPanelListMetricsListener.class);
+	}
+
+	/**
+	 * Returns the name of the MBean publishing the metrics or null if it is not registered.
+	 */
+	public ObjectName getObjectName() {
+		return objectName;
+	}
+
+	/**
+	 * Registers the MBean with the platform MBean server if it is not registered yet.
+	 * A number unique to these metrics is part of the name, so lists with equal names do not clash.
+	 */
+	void register(String name) {
+		if (objectName != null) return;
+		try {
+			objectName = new ObjectName(JMX_DOMAIN + ":type=DPanelList,name=" + ObjectName.quote(name) + ",id=" + id);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), objectName);
+		} catch (JMException | SecurityException e) {
+			objectName = null;
+			e.printStackTrace(System.err);
+		}
+	}
+
+	void unregister() {
+		if (objectName == null) return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException | SecurityException e) {
+			e.printStackTrace(System.err);
+		}
+		objectName = null;
+	}
+
+	/**
+	 * Samples of a single metric.
+	 */
+	private static final class Recorder {
+		private long count;
+		private long total;
+		private long max;
+		private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+
+		/**
+		 * Ring buffer of the most recent samples, next is the slot written next.
+		 */
+		private final long[] recent;
+		private int next = 0;
+
+		Recorder(int recentSamples) {
+			recent = new long[recentSamples];
+		}
+
+		void add(long nanos) {
+			count++;
+			total += nanos;
+			max = Math.max(max, nanos);
+			histogram[Math.min(HISTOGRAM_BUCKETS - 1, getBucket(nanos))]++;
+			if (recent.length > 0) {
+				recent[next] = nanos;
+				next = (next + 1) % recent.length;
+			}
+		}
+
+		long[] getRecentSamples() {
+			int size = (int) Math.min(count, recent.length);
+			long[] samples = new long[size];
+			int start = (next - size + recent.length) % Math.max(1, recent.length);
+			for (int i = 0; i < size; i++) {
+				samples[i] = recent[(start + i) % recent.length];
+			}
+			return samples;
+		}
+
+		void clear() {
+			count = 0;
+			total = 0;
+			max = 0;
+			Arrays.fill(histogram, 0);
+			next = 0;
+		}
+	}
+
+	/**
+	 * Read-only MBean with the attributes {@code <Metric><Suffix>}, for example {@code RefreshMaxNanos} or {@code PaintHistogram},
+	 * and a {@code reset} operation. Implemented as a dynamic MBean so the attributes follow the {@link Metric} constants.
+	 */
+	private class MetricsMBean implements DynamicMBean {
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			for (Metric metric : Metric.values()) {
+				if (!attribute.startsWith(metric.attributeName)) continue;
+				switch (attribute.substring(metric.attributeName.length())) {
+					case "Count":
+						return getCount(metric);
+					case "TotalNanos":
+						return getTotalNanos(metric);
+					case "MaxNanos":
+						return getMaxNanos(metric);
+					case "MeanNanos":
+						return getMeanNanos(metric);
+					case "Histogram":
+						return getHistogram(metric);
+					case "RecentSamples":
+						return getRecentSamples(metric);
+					default:
+						break;
+				}
+			}
+			throw new AttributeNotFoundException(attribute);
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			AttributeList list = new AttributeList();
+			for (String attribute : attributes) {
+				try {
+					list.add(new Attribute(attribute, getAttribute(attribute)));
+				} catch (AttributeNotFoundException e) {
+					//Unknown attributes are left out of the result
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Read-only attribute " + attribute.getName());
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+			if ("reset".equals(actionName) && (params == null || params.length == 0)) {
+				reset();
+				return null;
+			}
+			throw new ReflectionException(new NoSuchMethodException(actionName));
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			Metric[] metrics = Metric.values();
+			MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[metrics.length * ATTRIBUTE_SUFFIXES.length];
+			int i = 0;
+			for (Metric metric : metrics) {
+				for (String suffix : ATTRIBUTE_SUFFIXES) {
+					boolean array = suffix.equals("Histogram") || suffix.equals("RecentSamples");
+					attributes[i++] = new MBeanAttributeInfo(metric.attributeName + suffix, array ? long[].class.getName() : "long",
+							metric.attributeName + " " + suffix, true, false, false);
+				}
+			}
+			MBeanOperationInfo reset = new MBeanOperationInfo("reset", "Discards all samples", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION);
+			return new MBeanInfo(DPanelListMetrics.class.getName(), "Timings of a DPanelList", attributes, null, new MBeanOperationInfo[] {reset}, null);
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.EventListener;
+
+/**
+ * Listener notified about every sample recorded by the {@link DPanelListMetrics} of an instrumented {@link DPanelList}.
+ * @author DUDSS
+ */
+public interface DPanelListMetricsListener extends EventListener {
+	/**
+	 * Called on the event dispatch thread right after the measured operation, possibly while the list is painting.
+	 * Implementations should only store or forward the sample.
+	 * @param metric The measured operation.
+	 * @param nanos The duration of the operation in nanoseconds.
+	 */
+	void sampleRecorded(DPanelListMetrics.Metric metric, long nanos);
+}
@@ -0,0 +1,36 @@
+package net.dudss.dcomponents.components.panellist;
+
+import javax.swing.ListModel;
+
+/**
+ * Observable list of elements displayed by a {@link DPanelList}, in the spirit of {@link ListModel}.
+ * <br><br>
+ * Instead of re-comparing the whole list on {@link DPanelList#refresh()}, the component listens to the fine-grained events
+ * of the model and only updates the affected rows. Events should be fired on the event dispatch thread after the model has changed.
+ * 
+ * @see DefaultDPanelListModel
+ * @author DUDSS
+ *
+ * @param <V> The type of the elements of the model.
+ */
+public interface DPanelListModel<V> {
+	/**
+	 * Returns the number of elements in the model.
+	 */
+	int getSize();
+	
+	/**
+	 * Returns the element at the specified index.
+	 */
+	V getElementAt(int index);
+	
+	/**
+	 * Adds a listener that is notified each time the model changes.
+	 */
+	void addDPanelListModelListener(DPanelListModelListener l);
+	
+	/**
+	 * Removes a previously added model listener.
+	 */
+	void removeDPanelListModelListener(DPanelListModelListener l);
+}
@@ -0,0 +1,70 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.EventObject;
+
+/**
+ * Event describing a change of a {@link DPanelListModel} as a range of indexes.
+ * @author DUDSS
+ */
+public class DPanelListModelEvent extends EventObject {
+	private static final long serialVersionUID = 1L;
+	
+	public enum Type {
+		INTERVAL_ADDED, INTERVAL_REMOVED, CONTENTS_CHANGED, MOVED
+	}
+	
+	private final Type type;
+	private final int index0;
+	private final int index1;
+	private final int targetIndex;
+	
+	public DPanelListModelEvent(Object source, Type type, int index0, int index1) {
+		this(source, type, index0, index1, -1);
+	}
+	
+	/**
+	 * @param source The model that changed.
+	 * @param type The type of the change.
+	 * @param index0 The first index of the affected range.
+	 * @param index1 The last index of the affected range (inclusive).
+	 * @param targetIndex The index the first moved element ended up at, only used by {@link Type#MOVED} events.
+	 */
+	public DPanelListModelEvent(Object source, Type type, int index0, int index1, int targetIndex) {
+		super(source);
+		this.type = type;
+		this.index0 = Math.min(index0, index1);
+		this.index1 = Math.max(index0, index1);
+		this.targetIndex = targetIndex;
+	}
+	
+	public Type getType() {
+		return type;
+	}
+	
+	public int getIndex0() {
+		return index0;
+	}
+	
+	public int getIndex1() {
+		return index1;
+	}
+	
+	/**
+	 * Returns the number of elements in the affected range.
+	 */
+	public int getLength() {
+		return index1 - index0 + 1;
+	}
+	
+	/**
+	 * Returns the index of the first moved element after the move, -1 for other event types.
+	 */
+	public int getTargetIndex() {
+		return targetIndex;
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getName() + "[type=" + type + ",index0=" + index0 + ",index1=" + index1 + ",targetIndex=" + targetIndex + "]";
+	}
+}
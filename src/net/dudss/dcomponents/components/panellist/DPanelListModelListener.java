@@ -0,0 +1,30 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.EventListener;
+
+/**
+ * Listener notified about changes of a {@link DPanelListModel}.
+ * @author DUDSS
+ */
+public interface DPanelListModelListener extends EventListener {
+	/**
+	 * Elements were inserted into the range [index0, index1] (inclusive).
+	 */
+	void intervalAdded(DPanelListModelEvent e);
+	
+	/**
+	 * Elements that occupied the range [index0, index1] (inclusive) were removed.
+	 */
+	void intervalRemoved(DPanelListModelEvent e);
+	
+	/**
+	 * Elements in the range [index0, index1] (inclusive) were replaced or their contents changed.
+	 * An event with negative indexes means that the whole model changed.
+	 */
+	void contentsChanged(DPanelListModelEvent e);
+	
+	/**
+	 * Elements in the range [index0, index1] (inclusive) were moved as a block so that the first of them is now at the target index.
+	 */
+	void moved(DPanelListModelEvent e);
+}
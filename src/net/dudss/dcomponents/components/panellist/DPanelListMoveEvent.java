@@ -0,0 +1,167 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.awt.event.ActionEvent;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structure event fired by {@link DPanelList#moveItems(int[], int)} and drag-and-drop reordering.
+ * <br><br>
+ * The event is passed to the structure listener of the list like any other structure change, listeners that keep
+ * a copy of the elements or data indexed by row can check for this type and replay the move with {@link #applyTo(List)}
+ * or {@link #newIndexOf(int)} instead of rebuilding their state.
+ * <br><br>
+ * A move takes the elements at the source indexes out of the list and inserts them, in their original order,
+ * in front of the element that was at the target index before the move. All other elements keep their relative order.
+ *
+ * @author DUDSS
+ */
+public class DPanelListMoveEvent extends ActionEvent {
+	private static final long serialVersionUID = 1L;
+
+	private final int[] sourceIndexes;
+	private final int targetIndex;
+	private final int firstIndex;
+
+	/**
+	 * @param source The list that moved the elements.
+	 * @param command The action command of the event.
+	 * @param sourceIndexes The indexes of the moved elements before the move, sorted in ascending order without duplicates.
+	 * @param targetIndex The index in front of which the elements are inserted, between 0 and the size of the list.
+	 */
+	public DPanelListMoveEvent(Object source, String command, int[] sourceIndexes, int targetIndex) {
+		super(source, ACTION_PERFORMED, command, System.currentTimeMillis(), 0);
+		this.sourceIndexes = sourceIndexes.clone();
+		this.targetIndex = targetIndex;
+		this.firstIndex = targetIndex - countBefore(this.sourceIndexes, targetIndex);
+	}
+
+	/**
+	 * Returns the indexes the moved elements had before the move in ascending order.
+	 */
+	public int[] getSourceIndexes() {
+		return sourceIndexes.clone();
+	}
+
+	/**
+	 * Returns the index in front of which the elements were inserted, relative to the list before the move.
+	 */
+	public int getTargetIndex() {
+		return targetIndex;
+	}
+
+	/**
+	 * Returns the index of the first moved element after the move. The moved elements occupy the range
+	 * [getFirstIndex(), getFirstIndex() + getMovedCount() - 1] afterwards.
+	 */
+	public int getFirstIndex() {
+		return firstIndex;
+	}
+
+	/**
+	 * Returns the number of moved elements.
+	 */
+	public int getMovedCount() {
+		return sourceIndexes.length;
+	}
+
+	/**
+	 * Returns the first index whose element changed by the move.
+	 */
+	public int getChangedIndex0() {
+		return sourceIndexes.length == 0 ? firstIndex : Math.min(sourceIndexes[0], firstIndex);
+	}
+
+	/**
+	 * Returns the last index whose element changed by the move (inclusive).
+	 */
+	public int getChangedIndex1() {
+		return sourceIndexes.length == 0 ? firstIndex - 1 : Math.max(sourceIndexes[sourceIndexes.length - 1], firstIndex + sourceIndexes.length - 1);
+	}
+
+	/**
+	 * Whether the moved elements were adjacent before the move.
+	 */
+	public boolean isContiguous() {
+		return sourceIndexes.length == 0 || sourceIndexes[sourceIndexes.length - 1] - sourceIndexes[0] == sourceIndexes.length - 1;
+	}
+
+	/**
+	 * Whether the move changes the order of the elements at all.
+	 */
+	public boolean changesOrder() {
+		return sourceIndexes.length > 0 && (!isContiguous() || firstIndex != sourceIndexes[0]);
+	}
+
+	/**
+	 * Returns the index an element at the specified index before the move has after the move.
+	 */
+	public int newIndexOf(int oldIndex) {
+		int position = Arrays.binarySearch(sourceIndexes, oldIndex);
+		if (position >= 0) {
+			return firstIndex + position;
+		}
+		int index = oldIndex + position + 1; // position is -(number of moved elements before the index) - 1
+		return index >= firstIndex ? index + sourceIndexes.length : index;
+	}
+
+	/**
+	 * Applies the move to a list holding the same number of elements as the list that fired the event.
+	 * Only the elements in the changed range are written with {@link List#set(int, Object)}, so the list must support it.
+	 */
+	public <E> void applyTo(List<E> list) {
+		move(list, sourceIndexes, firstIndex);
+	}
+
+	/**
+	 * Moves the elements at the sorted source indexes so that the first of them ends up at the first index in a single pass over the changed range.
+	 */
+	static <E> void move(List<E> list, int[] sourceIndexes, int firstIndex) {
+		int count = sourceIndexes.length;
+		if (count == 0) return;
+		int index0 = Math.min(sourceIndexes[0], firstIndex);
+		int index1 = Math.max(sourceIndexes[count - 1], firstIndex + count - 1);
+		int blockStart = firstIndex - index0;
+
+		@SuppressWarnings("unchecked")
+		E[] result = (E[]) new Object[index1 - index0 + 1];
+		int moved = 0;
+		int next = 0;
+		for (int i = index0; i <= index1; i++) {
+			E element = list.get(i);
+			if (moved < count && sourceIndexes[moved] == i) {
+				result[blockStart + moved++] = element;
+			} else {
+				if (next == blockStart) next += count;
+				result[next++] = element;
+			}
+		}
+		for (int i = 0; i < result.length; i++) {
+			list.set(index0 + i, result[i]);
+		}
+	}
+
+	/**
+	 * Returns a sorted copy of the indexes without duplicates.
+	 * @throws IndexOutOfBoundsException If an index is not in the range [0, size).
+	 */
+	static int[] normalize(int[] indexes, int size) {
+		int[] sorted = indexes.clone();
+		Arrays.sort(sorted);
+		int length = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (sorted[i] < 0 || sorted[i] >= size) {
+				throw new IndexOutOfBoundsException("Index: " + sorted[i] + ", size: " + size);
+			}
+			if (length == 0 || sorted[length - 1] != sorted[i]) {
+				sorted[length++] = sorted[i];
+			}
+		}
+		return length == sorted.length ? sorted : Arrays.copyOf(sorted, length);
+	}
+
+	private static int countBefore(int[] sorted, int index) {
+		int position = Arrays.binarySearch(sorted, index);
+		return position >= 0 ? position : -position - 1;
+	}
+}
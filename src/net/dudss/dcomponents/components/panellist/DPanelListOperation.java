@@ -0,0 +1,89 @@
+package net.dudss.dcomponents.components.panellist;
+
+/**
+ * A modification of the list displayed by a {@link DPanelList} that is posted from any thread through {@link DPanelList#post(DPanelListOperation)}.
+ * <br><br>
+ * Operations are applied on the event dispatch thread in the order they were posted. Indexes refer to the list at the time
+ * the operation is applied, after all operations posted before it. Elements are compared by reference.
+ *
+ * @author DUDSS
+ *
+ * @param <V> The type of the elements of the list.
+ */
+public final class DPanelListOperation<V> {
+	enum Type {
+		APPEND, INSERT, SET, REMOVE, REMOVE_AT, CLEAR
+	}
+
+	private final Type type;
+	private final int index;
+	private final V element;
+
+	private DPanelListOperation(Type type, int index, V element) {
+		this.type = type;
+		this.index = index;
+		this.element = element;
+	}
+
+	/**
+	 * Appends the element to the end of the list.
+	 */
+	public static <V> DPanelListOperation<V> add(V element) {
+		return new DPanelListOperation<>(Type.APPEND, -1, element);
+	}
+
+	/**
+	 * Inserts the element at the specified index.
+	 */
+	public static <V> DPanelListOperation<V> add(int index, V element) {
+		return new DPanelListOperation<>(Type.INSERT, index, element);
+	}
+
+	/**
+	 * Replaces the element at the specified index.
+	 */
+	public static <V> DPanelListOperation<V> set(int index, V element) {
+		return new DPanelListOperation<>(Type.SET, index, element);
+	}
+
+	/**
+	 * Removes the first occurrence of the element. Nothing happens if the list does not contain it.
+	 */
+	public static <V> DPanelListOperation<V> remove(V element) {
+		return new DPanelListOperation<>(Type.REMOVE, -1, element);
+	}
+
+	/**
+	 * Removes the element at the specified index.
+	 */
+	public static <V> DPanelListOperation<V> removeAt(int index) {
+		return new DPanelListOperation<>(Type.REMOVE_AT, index, null);
+	}
+
+	/**
+	 * Removes all elements.
+	 */
+	public static <V> DPanelListOperation<V> clear() {
+		return new DPanelListOperation<>(Type.CLEAR, -1, null);
+	}
+
+	Type getType() {
+		return type;
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the added, replacing or removed element or null if the operation has none.
+	 */
+	public V getElement() {
+		return element;
+	}
+
+	@Override
+	public String toString() {
+		return type + (index != -1 ? " " + index : "") + (element != null ? " " + element : "");
+	}
+}
@@ -0,0 +1,16 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.EventListener;
+
+/**
+ * Listener notified about the progress of {@link DPanelList#refreshAsync()}.
+ * @author DUDSS
+ */
+public interface DPanelListRefreshListener extends EventListener {
+	/**
+	 * Called on the event dispatch thread each time a chunk of the refresh has been applied.
+	 * @param applied Number of rows of the refreshed list that have been applied so far.
+	 * @param total Number of rows of the refreshed list. Equal to applied once the refresh finished.
+	 */
+	void refreshProgress(int applied, int total);
+}
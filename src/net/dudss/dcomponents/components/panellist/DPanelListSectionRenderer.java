@@ -0,0 +1,21 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.awt.Component;
+
+/**
+ * Provides the component painting the section headers of a sectioned {@link DPanelList}, similar to a {@link javax.swing.ListCellRenderer}.
+ * <br><br>
+ * The returned component is only used to paint the header, it is not added to the list. The same component can be returned for every header.
+ * @see DPanelList#setSectionKey(java.util.function.Function)
+ * @author DUDSS
+ */
+public interface DPanelListSectionRenderer {
+	/**
+	 * @param list The list painting the header.
+	 * @param key The section key shared by the elements of the section.
+	 * @param size The number of elements in the section, including collapsed ones.
+	 * @param collapsed Whether the section is collapsed.
+	 * @return The component painting the header.
+	 */
+	Component getSectionRendererComponent(DPanelList<?, ?> list, Object key, int size, boolean collapsed);
+}
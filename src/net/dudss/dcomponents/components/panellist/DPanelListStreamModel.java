@@ -0,0 +1,215 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import javax.swing.Timer;
+
+/**
+ * Append-only {@link DPanelListModel} holding at most a fixed number of elements, meant for live logs and other streams of items.
+ * <br><br>
+ * Elements are stored in a ring buffer. Once the capacity is reached, appending an element evicts the oldest one,
+ * so a {@link DPanelList} displaying the model drops the panel of the first row instead of growing without bound.
+ * <br><br>
+ * {@link #append(Object)} and {@link #appendAll(Collection)} can be called from any thread. Appended elements are collected and
+ * applied on the event dispatch thread at most once per frame, firing a single removal event for the evicted elements
+ * and a single insertion event for the appended ones. Appends arriving faster than the frame rate therefore cause one update
+ * of the list per frame rather than one per element. {@link #flush()} applies the pending elements immediately.
+ * <br><br>
+ * The model is a read-only {@link java.util.List}, so a list displaying it should have drag-and-drop disabled.
+ * To keep the newest rows in view use a {@link net.dudss.dcomponents.misc.SmartScroller} on the list.
+ *
+ * @author DUDSS
+ *
+ * @param <V> The type of the elements of the model.
+ */
+public class DPanelListStreamModel<V> extends AbstractDPanelListModel<V> implements RandomAccess {
+	/**
+	 * Minimum delay between two updates in milliseconds, about one frame at 60 fps.
+	 */
+	private static final int FRAME_DELAY = 16;
+
+	private Object[] buffer;
+	private int head = 0;
+	private int size = 0;
+
+	/**
+	 * Appended elements that were not applied yet, guarded by its own lock.
+	 */
+	private final ArrayDeque<V> pending = new ArrayDeque<>();
+	private boolean flushScheduled = false;
+	private final Timer frameTimer;
+
+	/**
+	 * @param capacity The maximum number of elements, at least 1.
+	 */
+	public DPanelListStreamModel(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		}
+		buffer = new Object[capacity];
+		frameTimer = new Timer(FRAME_DELAY, e -> flush());
+		frameTimer.setRepeats(false);
+		//A coalescing timer drops a firing that happens while the previous batch is still being applied
+		frameTimer.setCoalesce(false);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+		int position = head + index;
+		return (V) buffer[position < buffer.length ? position : position - buffer.length];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * Appends an element. Can be called from any thread, the element shows up in the model with the next frame.
+	 */
+	public void append(V element) {
+		synchronized (pending) {
+			pending.addLast(element);
+			trimPending();
+		}
+		scheduleFlush();
+	}
+
+	/**
+	 * Appends the elements in the iteration order of the collection. Can be called from any thread.
+	 */
+	public void appendAll(Collection<? extends V> elements) {
+		if (elements.isEmpty()) return;
+		synchronized (pending) {
+			pending.addAll(elements);
+			trimPending();
+		}
+		scheduleFlush();
+	}
+
+	/**
+	 * Returns the number of appended elements that were not applied yet.
+	 */
+	public int getPendingCount() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	/**
+	 * Drops pending elements that would be evicted by newer pending elements anyway.
+	 */
+	private void trimPending() {
+		while (pending.size() > buffer.length) {
+			pending.pollFirst();
+		}
+	}
+
+	private void scheduleFlush() {
+		synchronized (pending) {
+			if (flushScheduled) return;
+			flushScheduled = true;
+		}
+		frameTimer.start();
+	}
+
+	/**
+	 * Applies all pending elements now, evicting the oldest elements if the capacity is exceeded.
+	 * Must be called on the event dispatch thread.
+	 */
+	public void flush() {
+		Object[] appended;
+		synchronized (pending) {
+			flushScheduled = false;
+			appended = pending.toArray();
+			pending.clear();
+		}
+		if (appended.length == 0) return;
+
+		int evicted = Math.max(0, size + appended.length - buffer.length);
+		if (evicted > 0) {
+			removeFirst(evicted);
+		}
+		int index0 = size;
+		for (Object element : appended) {
+			int position = head + size;
+			buffer[position < buffer.length ? position : position - buffer.length] = element;
+			size++;
+		}
+		modCount++;
+		fireIntervalAdded(index0, size - 1);
+	}
+
+	/**
+	 * Changes the capacity, evicting the oldest elements if the model holds more elements than the new capacity.
+	 * Must be called on the event dispatch thread.
+	 */
+	public void setCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		}
+		if (capacity == buffer.length) return;
+		if (size > capacity) {
+			removeFirst(size - capacity);
+		}
+		Object[] resized = new Object[capacity];
+		for (int i = 0; i < size; i++) {
+			resized[i] = get(i);
+		}
+		buffer = resized;
+		head = 0;
+		synchronized (pending) {
+			trimPending();
+		}
+	}
+
+	/**
+	 * Removes all elements, including pending ones. Must be called on the event dispatch thread.
+	 */
+	@Override
+	public void clear() {
+		synchronized (pending) {
+			pending.clear();
+		}
+		if (size > 0) {
+			removeFirst(size);
+		}
+	}
+
+	/**
+	 * Evicts the oldest elements firing a single removal event.
+	 */
+	private void removeFirst(int count) {
+		for (int i = 0; i < count; i++) {
+			buffer[head] = null;
+			head = head + 1 < buffer.length ? head + 1 : 0;
+		}
+		size -= count;
+		if (size == 0) {
+			head = 0;
+		}
+		modCount++;
+		fireIntervalRemoved(0, count - 1);
+	}
+
+	/**
+	 * Stops the pending update, pending elements are discarded.
+	 */
+	public void dispose() {
+		frameTimer.stop();
+		synchronized (pending) {
+			pending.clear();
+			flushScheduled = false;
+		}
+	}
+}
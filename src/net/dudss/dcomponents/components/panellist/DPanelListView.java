@@ -0,0 +1,717 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+
+import javax.swing.RowSorter;
+import javax.swing.SwingWorker;
+
+/**
+ * Sorted and filtered view of a {@link DPanelListModel}, in the spirit of {@link RowSorter}.
+ * <br><br>
+ * The view shows the elements of the source model accepted by the filter, ordered by the comparator or in model order if there is none.
+ * Elements that compare equal keep their model order. The view is a model itself and is displayed by passing it to {@link DPanelList#setModel(DPanelListModel)}.
+ * <br><br>
+ * Changes of the source are applied incrementally: an inserted or changed element is placed with a binary search of the view
+ * and announced with a single event, so the list only updates that row. Changed elements that are still in order keep their row,
+ * the others are moved. Larger changes are merged in one pass and announced as a whole model change.
+ * Changing the filter or the comparator sorts a snapshot of the source on a worker thread,
+ * the previous order stays visible until the new one replaces it at once. Changes of the source made while sorting are carried over
+ * to the sorted order, only the added and changed elements are placed again, so a steadily changing source does not delay the new order.
+ * <br><br>
+ * The view is read-only, lists displaying it should have drag-and-drop disabled.
+ * Like the source model it must only be used on the event dispatch thread.
+ *
+ * @author DUDSS
+ *
+ * @param <V> The type of the elements of the model.
+ */
+public class DPanelListView<V> extends AbstractDPanelListModel<V> implements RandomAccess {
+	/**
+	 * Number of changed elements above which a change of the source is merged in one pass instead of firing an event per element.
+	 */
+	private static final int INCREMENTAL_LIMIT = 64;
+
+	private final DPanelListModel<V> source;
+	private final SourceHandler handler = new SourceHandler();
+
+	private Predicate<? super V> filter;
+	private Comparator<? super V> comparator;
+
+	/**
+	 * Filter and comparator the current order is based on, they differ from the requested ones while a re-sort is running.
+	 */
+	private Predicate<? super V> viewFilter;
+	private Comparator<? super V> viewComparator;
+
+	private int[] viewToModel = new int[0];
+	private int viewSize = 0;
+
+	/**
+	 * View index of every element of the source or -1 if it is filtered out, rebuilt lazily after the view changed.
+	 */
+	private int[] modelToView = new int[0];
+	private boolean modelToViewValid = false;
+
+	/**
+	 * Incremented on every change of the source, used to detect that a re-sort worked on outdated elements.
+	 * The changes are carried over to its result, see {@link Resort#catchUp(int[])}.
+	 */
+	private int sourceVersion = 0;
+	private Resort resort;
+
+	/**
+	 * Creates a view showing all elements of the source in model order.
+	 */
+	public DPanelListView(DPanelListModel<V> source) {
+		this(source, null, null);
+	}
+
+	/**
+	 * Creates a view of the source. The initial order is computed right away.
+	 * @param source The model the view is based on.
+	 * @param filter Predicate elements have to match to be shown or null to show all of them.
+	 * @param comparator Order of the elements or null to keep the model order.
+	 */
+	public DPanelListView(DPanelListModel<V> source, Predicate<? super V> filter, Comparator<? super V> comparator) {
+		this.source = source;
+		this.filter = filter;
+		this.comparator = comparator;
+		this.viewFilter = filter;
+		this.viewComparator = comparator;
+		setOrder(sortIndexes(snapshot(), filter, comparator));
+		source.addDPanelListModelListener(handler);
+	}
+
+	@Override
+	public V get(int index) {
+		if (index < 0 || index >= viewSize) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + viewSize);
+		}
+		return source.getElementAt(viewToModel[index]);
+	}
+
+	@Override
+	public int size() {
+		return viewSize;
+	}
+
+	public DPanelListModel<V> getSource() {
+		return source;
+	}
+
+	public Predicate<? super V> getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Sets the predicate elements have to match to be shown and re-sorts the view on a worker thread.
+	 * @param filter The filter or null to show all elements.
+	 */
+	public void setFilter(Predicate<? super V> filter) {
+		this.filter = filter;
+		sort();
+	}
+
+	public Comparator<? super V> getComparator() {
+		return comparator;
+	}
+
+	/**
+	 * Sets the order of the elements and re-sorts the view on a worker thread.
+	 * @param comparator The comparator or null to keep the model order.
+	 */
+	public void setComparator(Comparator<? super V> comparator) {
+		this.comparator = comparator;
+		sort();
+	}
+
+	/**
+	 * Re-sorts and re-filters all elements on a worker thread, for example after the criteria the filter or the comparator depend on changed.
+	 * The new order replaces the current one in a single step and is announced as a whole model change.
+	 */
+	public void sort() {
+		Resort previous = resort;
+		resort = new Resort();
+		if (previous != null) {
+			previous.cancel(false);
+		}
+		resort.execute();
+	}
+
+	/**
+	 * Whether a re-sort is running on a worker thread.
+	 */
+	public boolean isSorting() {
+		return resort != null;
+	}
+
+	/**
+	 * Returns the index of the element of the source displayed at the specified index of the view.
+	 */
+	public int convertIndexToModel(int viewIndex) {
+		if (viewIndex < 0 || viewIndex >= viewSize) {
+			throw new IndexOutOfBoundsException("Index: " + viewIndex + ", size: " + viewSize);
+		}
+		return viewToModel[viewIndex];
+	}
+
+	/**
+	 * Returns the index of the view the element of the source at the specified index is displayed at or -1 if it is filtered out.
+	 */
+	public int convertIndexToView(int modelIndex) {
+		if (modelIndex < 0 || modelIndex >= source.getSize()) {
+			throw new IndexOutOfBoundsException("Index: " + modelIndex + ", size: " + source.getSize());
+		}
+		return getModelToView()[modelIndex];
+	}
+
+	/**
+	 * Stops listening to the source and cancels a running re-sort. The view does not change anymore afterwards.
+	 */
+	public void dispose() {
+		source.removeDPanelListModelListener(handler);
+		Resort previous = resort;
+		resort = null;
+		if (previous != null) {
+			previous.cancel(false);
+		}
+	}
+
+	private V element(int modelIndex) {
+		return source.getElementAt(modelIndex);
+	}
+
+	private boolean accepts(int modelIndex) {
+		return viewFilter == null || viewFilter.test(element(modelIndex));
+	}
+
+	/**
+	 * Compares two elements of the source by the order of the view.
+	 */
+	private int compareRows(int modelIndex0, int modelIndex1) {
+		if (viewComparator != null) {
+			int result = viewComparator.compare(element(modelIndex0), element(modelIndex1));
+			if (result != 0) return result;
+		}
+		return Integer.compare(modelIndex0, modelIndex1);
+	}
+
+	/**
+	 * Returns the view index the element of the source would be inserted at.
+	 */
+	private int insertionPoint(int modelIndex) {
+		int low = 0;
+		int high = viewSize;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compareRows(viewToModel[mid], modelIndex) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private boolean isInOrder(int viewIndex) {
+		int modelIndex = viewToModel[viewIndex];
+		return (viewIndex == 0 || compareRows(viewToModel[viewIndex - 1], modelIndex) < 0)
+				&& (viewIndex == viewSize - 1 || compareRows(modelIndex, viewToModel[viewIndex + 1]) < 0);
+	}
+
+	private int[] getModelToView() {
+		if (!modelToViewValid) {
+			int size = source.getSize();
+			if (modelToView.length != size) {
+				modelToView = new int[size];
+			}
+			Arrays.fill(modelToView, -1);
+			for (int i = 0; i < viewSize; i++) {
+				modelToView[viewToModel[i]] = i;
+			}
+			modelToViewValid = true;
+		}
+		return modelToView;
+	}
+
+	private void insertViewRow(int viewIndex, int modelIndex) {
+		if (viewSize == viewToModel.length) {
+			viewToModel = Arrays.copyOf(viewToModel, Math.max(16, viewSize * 2));
+		}
+		System.arraycopy(viewToModel, viewIndex, viewToModel, viewIndex + 1, viewSize - viewIndex);
+		viewToModel[viewIndex] = modelIndex;
+		viewSize++;
+		modelToViewValid = false;
+	}
+
+	private void removeViewRows(int viewIndex0, int viewIndex1) {
+		System.arraycopy(viewToModel, viewIndex1 + 1, viewToModel, viewIndex0, viewSize - viewIndex1 - 1);
+		viewSize -= viewIndex1 - viewIndex0 + 1;
+		modelToViewValid = false;
+	}
+
+	/**
+	 * Returns the view index of the element of the source, scanning the view since the index is not up to date while rows move.
+	 */
+	private int indexOfRow(int modelIndex) {
+		for (int i = 0; i < viewSize; i++) {
+			if (viewToModel[i] == modelIndex) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sorts the added elements of the source and merges them into the ordered rows in one pass.
+	 * @return The merged rows, the added elements are left sorted.
+	 */
+	private int[] mergeRows(int[] rows, int rowCount, Integer[] added, int addedCount) {
+		Arrays.sort(added, 0, addedCount, this::compareRows);
+		int[] merged = new int[rowCount + addedCount];
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < merged.length; k++) {
+			if (j == addedCount || i < rowCount && compareRows(rows[i], added[j]) < 0) {
+				merged[k] = rows[i++];
+			} else {
+				merged[k] = added[j++];
+			}
+		}
+		return merged;
+	}
+
+	private void setOrder(int[] order) {
+		viewToModel = order;
+		viewSize = order.length;
+		modelToViewValid = false;
+	}
+
+	/**
+	 * Recomputes the whole order on the event dispatch thread and announces it as a whole model change.
+	 */
+	private void resortNow() {
+		setOrder(sortIndexes(snapshot(), viewFilter, viewComparator));
+		fireContentsChanged(-1, -1);
+	}
+
+	private Object[] snapshot() {
+		Object[] elements = new Object[source.getSize()];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = source.getElementAt(i);
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns the indexes of the accepted elements in the order of the comparator, equal elements keep their order.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <V> int[] sortIndexes(Object[] elements, Predicate<? super V> filter, Comparator<? super V> comparator) {
+		int[] accepted = new int[elements.length];
+		int count = 0;
+		for (int i = 0; i < elements.length; i++) {
+			if (filter == null || filter.test((V) elements[i])) {
+				accepted[count++] = i;
+			}
+		}
+		if (comparator == null) {
+			return count == accepted.length ? accepted : Arrays.copyOf(accepted, count);
+		}
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = accepted[i];
+		}
+		Arrays.sort(order, (a, b) -> comparator.compare((V) elements[a], (V) elements[b])); // Stable
+		int[] result = new int[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = order[i];
+		}
+		return result;
+	}
+
+	/**
+	 * Sorts a snapshot of the source on a worker thread and swaps in the new order, updated with the changes of the source made in the meantime.
+	 */
+	private class Resort extends SwingWorker<int[], Void> {
+		private final Object[] elements = snapshot();
+		private final int version = sourceVersion;
+		private final Predicate<? super V> filter = DPanelListView.this.filter;
+		private final Comparator<? super V> comparator = DPanelListView.this.comparator;
+
+		/**
+		 * Elements reported as changed while sorting, their place in the sorted snapshot may be outdated.
+		 */
+		private final Set<Object> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+		private boolean changedAll = false;
+
+		@Override
+		protected int[] doInBackground() {
+			return sortIndexes(elements, filter, comparator);
+		}
+
+		@Override
+		protected void done() {
+			if (resort != this) return;
+			resort = null;
+			int[] order;
+			try {
+				order = get();
+			} catch (InterruptedException | ExecutionException e) {
+				//Let the filter or comparator fail on the event dispatch thread
+				order = sortIndexes(elements, filter, comparator);
+			}
+			viewFilter = filter;
+			viewComparator = comparator;
+			if (version != sourceVersion) {
+				//Starting over could be outrun by the changes of the source forever
+				order = changedAll ? sortIndexes(snapshot(), filter, comparator) : catchUp(order);
+			}
+			setOrder(order);
+			fireContentsChanged(-1, -1);
+		}
+
+		/**
+		 * Notes the elements of the source in the range as changed.
+		 */
+		void elementsChanged(int index0, int index1) {
+			if (index0 < 0) {
+				changedAll = true;
+				return;
+			}
+			for (int modelIndex = index0; modelIndex <= index1; modelIndex++) {
+				changed.add(element(modelIndex));
+			}
+		}
+
+		/**
+		 * Carries the sorted order of the snapshot over to the current elements of the source. The elements are matched by identity,
+		 * elements that are gone are dropped and added or changed elements are filtered, sorted and merged in.
+		 * @param order Sorted indexes of the snapshot.
+		 * @return Sorted indexes of the source.
+		 */
+		private int[] catchUp(int[] order) {
+			Object[] current = snapshot();
+			IdentityDiff diff = new IdentityDiff(Arrays.asList(elements), Arrays.asList(current));
+			BitSet known = new BitSet(current.length);
+			for (int i = 0; i < elements.length; i++) {
+				int modelIndex = diff.oldToNew[i];
+				if (modelIndex != -1 && !changed.contains(elements[i])) {
+					known.set(modelIndex);
+				}
+			}
+
+			int[] kept = new int[order.length];
+			int keptCount = 0;
+			boolean sorted = true;
+			for (int index : order) {
+				int modelIndex = diff.oldToNew[index];
+				if (modelIndex == -1 || !known.get(modelIndex)) continue;
+				//Only elements comparing equal can be out of order, if they were moved within the source
+				if (keptCount > 0 && compareRows(kept[keptCount - 1], modelIndex) > 0) {
+					sorted = false;
+				}
+				kept[keptCount++] = modelIndex;
+			}
+			if (!sorted) {
+				Integer[] boxed = new Integer[keptCount];
+				for (int i = 0; i < keptCount; i++) {
+					boxed[i] = kept[i];
+				}
+				kept = mergeRows(new int[0], 0, boxed, keptCount);
+			}
+
+			Integer[] added = new Integer[current.length - known.cardinality()];
+			int addedCount = 0;
+			for (int modelIndex = known.nextClearBit(0); modelIndex < current.length; modelIndex = known.nextClearBit(modelIndex + 1)) {
+				if (accepts(modelIndex)) added[addedCount++] = modelIndex;
+			}
+			return mergeRows(kept, keptCount, added, addedCount);
+		}
+	}
+
+	/**
+	 * Applies the changes of the source to the view.
+	 */
+	private class SourceHandler implements DPanelListModelListener {
+		@Override
+		public void intervalAdded(DPanelListModelEvent e) {
+			sourceVersion++;
+			int index0 = e.getIndex0();
+			int length = e.getLength();
+			for (int i = 0; i < viewSize; i++) {
+				if (viewToModel[i] >= index0) viewToModel[i] += length;
+			}
+			modelToViewValid = false;
+
+			if (length > INCREMENTAL_LIMIT) {
+				merge(index0, e.getIndex1());
+				return;
+			}
+			for (int modelIndex = index0; modelIndex <= e.getIndex1(); modelIndex++) {
+				if (accepts(modelIndex)) {
+					int viewIndex = insertionPoint(modelIndex);
+					insertViewRow(viewIndex, modelIndex);
+					fireIntervalAdded(viewIndex, viewIndex);
+				}
+			}
+		}
+
+		/**
+		 * Sorts the accepted elements in the range of the source and merges them into the view in one pass.
+		 */
+		private void merge(int index0, int index1) {
+			Integer[] added = new Integer[index1 - index0 + 1];
+			int count = 0;
+			for (int modelIndex = index0; modelIndex <= index1; modelIndex++) {
+				if (accepts(modelIndex)) added[count++] = modelIndex;
+			}
+			if (count == 0) return;
+			setOrder(mergeRows(viewToModel, viewSize, added, count));
+			fireContentsChanged(-1, -1);
+		}
+
+		@Override
+		public void intervalRemoved(DPanelListModelEvent e) {
+			sourceVersion++;
+			int index0 = e.getIndex0();
+			int index1 = e.getIndex1();
+			int length = e.getLength();
+
+			//Renumber the remaining rows first, removed rows are marked with -1
+			int runs = 0;
+			boolean inRun = false;
+			for (int i = 0; i < viewSize; i++) {
+				int modelIndex = viewToModel[i];
+				if (modelIndex > index1) {
+					viewToModel[i] = modelIndex - length;
+					inRun = false;
+				} else if (modelIndex >= index0) {
+					viewToModel[i] = -1;
+					if (!inRun) runs++;
+					inRun = true;
+				} else {
+					inRun = false;
+				}
+			}
+			modelToViewValid = false;
+			removeMarkedRows(runs);
+		}
+
+		/**
+		 * Removes the rows marked with -1 from the view.
+		 * @param runs The number of runs of adjacent marked rows.
+		 */
+		private void removeMarkedRows(int runs) {
+			if (runs == 0) return;
+			if (runs > INCREMENTAL_LIMIT) {
+				int size = 0;
+				for (int i = 0; i < viewSize; i++) {
+					if (viewToModel[i] != -1) viewToModel[size++] = viewToModel[i];
+				}
+				viewSize = size;
+				fireContentsChanged(-1, -1);
+				return;
+			}
+			//Remove the runs from the bottom up so that the indexes of the remaining runs stay valid
+			for (int i = viewSize - 1; i >= 0; i--) {
+				if (viewToModel[i] != -1) continue;
+				int last = i;
+				while (i > 0 && viewToModel[i - 1] == -1) i--;
+				removeViewRows(i, last);
+				fireIntervalRemoved(i, last);
+			}
+		}
+
+		@Override
+		public void contentsChanged(DPanelListModelEvent e) {
+			sourceVersion++;
+			int index0 = e.getIndex0();
+			int index1 = e.getIndex1();
+			if (resort != null) {
+				resort.elementsChanged(index0, index1);
+			}
+			if (index0 < 0 || e.getLength() > INCREMENTAL_LIMIT) {
+				modelToViewValid = false;
+				resortNow();
+				return;
+			}
+			if (index0 == index1) {
+				elementChanged(index0);
+				return;
+			}
+			rangeChanged(index0, index1);
+		}
+
+		/**
+		 * Updates the positions of several changed elements. Like for a single element the rows are announced as changed first,
+		 * rows that are still in order keep their place and only the others are moved, so the list keeps their panels and selection.
+		 */
+		private void rangeChanged(int index0, int index1) {
+			//Rows of elements that are filtered out now are removed
+			int runs = 0;
+			boolean inRun = false;
+			for (int i = 0; i < viewSize; i++) {
+				int modelIndex = viewToModel[i];
+				if (modelIndex >= index0 && modelIndex <= index1 && !accepts(modelIndex)) {
+					viewToModel[i] = -1;
+					if (!inRun) runs++;
+					inRun = true;
+				} else {
+					inRun = false;
+				}
+			}
+			modelToViewValid = false;
+			removeMarkedRows(runs);
+
+			//A changed row stays in place if it is in order with the rows kept before it and the next unchanged row
+			boolean[] misplaced = new boolean[viewSize];
+			int misplacedCount = 0;
+			int lastKept = -1;
+			for (int i = 0; i < viewSize; i++) {
+				int modelIndex = viewToModel[i];
+				if (modelIndex < index0 || modelIndex > index1) {
+					lastKept = modelIndex;
+					continue;
+				}
+				fireContentsChanged(i, i);
+				int next = i + 1;
+				while (next < viewSize && viewToModel[next] >= index0 && viewToModel[next] <= index1) next++;
+				if ((lastKept == -1 || compareRows(lastKept, modelIndex) < 0) && (next == viewSize || compareRows(modelIndex, viewToModel[next]) < 0)) {
+					lastKept = modelIndex;
+				} else {
+					misplaced[i] = true;
+					misplacedCount++;
+				}
+			}
+
+			//Elements of the source that became accepted are inserted
+			boolean[] present = new boolean[index1 - index0 + 1];
+			for (int i = 0; i < viewSize; i++) {
+				int modelIndex = viewToModel[i];
+				if (modelIndex >= index0 && modelIndex <= index1) present[modelIndex - index0] = true;
+			}
+			if (misplacedCount > 0) {
+				moveMisplacedRows(misplaced, misplacedCount);
+			}
+			for (int modelIndex = index0; modelIndex <= index1; modelIndex++) {
+				if (!present[modelIndex - index0] && accepts(modelIndex)) {
+					int viewIndex = insertionPoint(modelIndex);
+					insertViewRow(viewIndex, modelIndex);
+					fireIntervalAdded(viewIndex, viewIndex);
+				}
+			}
+		}
+
+		/**
+		 * Moves the marked rows to their place among the other rows, which are in order.
+		 * The rows are moved in the order of their final position, each right behind the row preceding it in the final order,
+		 * so a row is never placed relative to a row that still has to move.
+		 */
+		private void moveMisplacedRows(boolean[] misplaced, int count) {
+			int[] settled = new int[viewSize - count];
+			Integer[] moving = new Integer[count];
+			int settledCount = 0;
+			int movingCount = 0;
+			for (int i = 0; i < viewSize; i++) {
+				if (misplaced[i]) {
+					moving[movingCount++] = viewToModel[i];
+				} else {
+					settled[settledCount++] = viewToModel[i];
+				}
+			}
+			int[] order = mergeRows(settled, settledCount, moving, movingCount);
+			for (int k = 0; k < order.length; k++) {
+				int modelIndex = order[k];
+				if (Arrays.binarySearch(moving, 0, movingCount, modelIndex, DPanelListView.this::compareRows) < 0) continue;
+				int viewIndex = indexOfRow(modelIndex);
+				removeViewRows(viewIndex, viewIndex);
+				int targetIndex = k == 0 ? 0 : indexOfRow(order[k - 1]) + 1;
+				insertViewRow(targetIndex, modelIndex);
+				if (targetIndex != viewIndex) {
+					fireMoved(viewIndex, viewIndex, targetIndex);
+				}
+			}
+		}
+
+		/**
+		 * Updates the position of a single changed element, the elements around it are still in order.
+		 */
+		private void elementChanged(int modelIndex) {
+			int viewIndex = getModelToView()[modelIndex];
+			boolean accepted = accepts(modelIndex);
+			if (viewIndex == -1) {
+				if (accepted) {
+					viewIndex = insertionPoint(modelIndex);
+					insertViewRow(viewIndex, modelIndex);
+					fireIntervalAdded(viewIndex, viewIndex);
+				}
+			} else if (!accepted) {
+				removeViewRows(viewIndex, viewIndex);
+				fireIntervalRemoved(viewIndex, viewIndex);
+			} else {
+				//Let the listeners pick up the new element before it moves
+				fireContentsChanged(viewIndex, viewIndex);
+				if (!isInOrder(viewIndex)) {
+					removeViewRows(viewIndex, viewIndex);
+					int targetIndex = insertionPoint(modelIndex);
+					insertViewRow(targetIndex, modelIndex);
+					fireMoved(viewIndex, viewIndex, targetIndex);
+				}
+			}
+		}
+
+		@Override
+		public void moved(DPanelListModelEvent e) {
+			sourceVersion++;
+			int index0 = e.getIndex0();
+			int index1 = e.getIndex1();
+			int length = e.getLength();
+			int target = e.getTargetIndex();
+
+			//Rows of the moved block are adjacent in model order
+			int viewIndex0 = -1;
+			int viewIndex1 = -1;
+			for (int i = 0; i < viewSize; i++) {
+				int modelIndex = viewToModel[i];
+				if (modelIndex >= index0 && modelIndex <= index1) {
+					if (viewIndex0 == -1) viewIndex0 = i;
+					viewIndex1 = i;
+					viewToModel[i] = target + modelIndex - index0;
+				} else if (target < index0 && modelIndex >= target && modelIndex < index0) {
+					viewToModel[i] = modelIndex + length;
+				} else if (target > index0 && modelIndex > index1 && modelIndex < target + length) {
+					viewToModel[i] = modelIndex - length;
+				}
+			}
+			modelToViewValid = false;
+
+			if (viewComparator != null) {
+				//Only elements comparing equal are ordered by their model index
+				for (int i = 1; i < viewSize; i++) {
+					if (compareRows(viewToModel[i - 1], viewToModel[i]) > 0) {
+						resortNow();
+						return;
+					}
+				}
+			} else if (viewIndex0 != -1) {
+				int count = viewIndex1 - viewIndex0 + 1;
+				int[] block = Arrays.copyOfRange(viewToModel, viewIndex0, viewIndex1 + 1);
+				removeViewRows(viewIndex0, viewIndex1);
+				int targetIndex = insertionPoint(block[0]);
+				System.arraycopy(viewToModel, targetIndex, viewToModel, targetIndex + count, viewSize - targetIndex);
+				System.arraycopy(block, 0, viewToModel, targetIndex, count);
+				viewSize += count;
+				if (targetIndex != viewIndex0) {
+					fireMoved(viewIndex0, viewIndex1, targetIndex);
+				}
+			}
+		}
+	}
+}
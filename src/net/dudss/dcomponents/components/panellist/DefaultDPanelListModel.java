@@ -0,0 +1,142 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Array backed {@link DPanelListModel} that fires a model event for every modification.
+ * <br><br>
+ * Being a {@link List} it can be modified using the regular list methods. Bulk operations such as {@link #addAll(Collection)},
+ * {@link #removeRange(int, int)}, {@link #clear()} or clearing a {@link #subList(int, int)} fire a single event for the whole range,
+ * so a {@link DPanelList} displaying the model only updates the affected rows once.
+ * <br><br>
+ * The model is meant to be modified on the event dispatch thread.
+ * 
+ * @author DUDSS
+ *
+ * @param <V> The type of the elements of the model.
+ */
+public class DefaultDPanelListModel<V> extends AbstractDPanelListModel<V> implements RandomAccess {
+	private final ArrayList<V> elements;
+	
+	public DefaultDPanelListModel() {
+		elements = new ArrayList<>();
+	}
+	
+	public DefaultDPanelListModel(Collection<? extends V> c) {
+		elements = new ArrayList<>(c);
+	}
+	
+	@Override
+	public V get(int index) {
+		return elements.get(index);
+	}
+	
+	@Override
+	public int size() {
+		return elements.size();
+	}
+	
+	@Override
+	public V set(int index, V element) {
+		V previous = elements.set(index, element);
+		fireContentsChanged(index, index);
+		return previous;
+	}
+	
+	@Override
+	public void add(int index, V element) {
+		elements.add(index, element);
+		modCount++;
+		fireIntervalAdded(index, index);
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends V> c) {
+		return addAll(size(), c);
+	}
+	
+	@Override
+	public boolean addAll(int index, Collection<? extends V> c) {
+		if (c.isEmpty()) return false;
+		int length = c.size();
+		elements.addAll(index, c);
+		modCount++;
+		fireIntervalAdded(index, index + length - 1);
+		return true;
+	}
+	
+	@Override
+	public V remove(int index) {
+		V removed = elements.remove(index);
+		modCount++;
+		fireIntervalRemoved(index, index);
+		return removed;
+	}
+	
+	/**
+	 * Removes the elements in the range [fromIndex, toIndex) firing a single event.
+	 */
+	@Override
+	public void removeRange(int fromIndex, int toIndex) {
+		if (fromIndex >= toIndex) return;
+		elements.subList(fromIndex, toIndex).clear();
+		modCount++;
+		fireIntervalRemoved(fromIndex, toIndex - 1);
+	}
+	
+	/**
+	 * Moves the elements in the range [index0, index1] as a block so that the first of them ends up at the target index.
+	 * @param index0 The first index of the moved range.
+	 * @param index1 The last index of the moved range (inclusive).
+	 * @param targetIndex The index of the first moved element after the move, between 0 and size() - (index1 - index0 + 1).
+	 */
+	public void move(int index0, int index1, int targetIndex) {
+		int length = index1 - index0 + 1;
+		if (index0 < 0 || index1 >= size() || length <= 0 || targetIndex < 0 || targetIndex + length > size()) {
+			throw new IndexOutOfBoundsException("Range [" + index0 + ", " + index1 + "] can't be moved to " + targetIndex + ", size: " + size());
+		}
+		if (index0 == targetIndex) return;
+		List<V> block = new ArrayList<>(elements.subList(index0, index1 + 1));
+		elements.subList(index0, index1 + 1).clear();
+		elements.addAll(targetIndex, block);
+		modCount++;
+		fireMoved(index0, index1, targetIndex);
+	}
+
+	/**
+	 * Moves the elements at the specified indexes in front of the element at the target index, keeping their order.
+	 * <br><br>
+	 * The elements are permuted in a single pass. A contiguous selection fires a single {@link DPanelListModelEvent.Type#MOVED} event,
+	 * otherwise a single {@link DPanelListModelEvent.Type#CONTENTS_CHANGED} event for the changed range is fired.
+	 * @param indexes The indexes of the moved elements in any order.
+	 * @param targetIndex The index in front of which the elements are inserted, between 0 and size().
+	 * @see DPanelListMoveEvent
+	 */
+	public void move(int[] indexes, int targetIndex) {
+		if (targetIndex < 0 || targetIndex > size()) {
+			throw new IndexOutOfBoundsException("Target index: " + targetIndex + ", size: " + size());
+		}
+		int[] sourceIndexes = DPanelListMoveEvent.normalize(indexes, size());
+		if (sourceIndexes.length == 0) return;
+		DPanelListMoveEvent move = new DPanelListMoveEvent(this, null, sourceIndexes, targetIndex);
+		if (!move.changesOrder()) return;
+		move.applyTo(elements);
+		modCount++;
+		if (move.isContiguous()) {
+			fireMoved(sourceIndexes[0], sourceIndexes[sourceIndexes.length - 1], move.getFirstIndex());
+		} else {
+			fireContentsChanged(move.getChangedIndex0(), move.getChangedIndex1());
+		}
+	}
+
+	/**
+	 * Notifies listeners that the contents of the elements in the range [index0, index1] changed, for example
+	 * after modifying the fields of the elements. A {@link DPanelList} will update the panels of those rows.
+	 */
+	public void elementsChanged(int index0, int index1) {
+		fireContentsChanged(index0, index1);
+	}
+}
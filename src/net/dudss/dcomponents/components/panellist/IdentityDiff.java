@@ -0,0 +1,127 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Identity based reconciliation of two lists used by {@link DPanelList#refresh()}.
+ * <br><br>
+ * Every element of the new list is matched with an element of the old list that is the very same object (reference comparison).
+ * Each old element is matched at most once, so duplicates are paired up in order of appearance.
+ * The matching is done with a single pass over both lists.
+ * <br><br>
+ * The result can be turned into a minimal edit script: removals of unmatched old elements, insertions of unmatched new elements
+ * and moves of the matched elements returned by {@link #getMovedIndexes()}.
+ *
+ * @author DUDSS
+ */
+class IdentityDiff {
+	/**
+	 * For every index of the new list the index of the matched element in the old list or -1 if the element is new.
+	 */
+	final int[] newToOld;
+
+	/**
+	 * For every index of the old list the index of the matched element in the new list or -1 if the element was removed.
+	 */
+	final int[] oldToNew;
+
+	private IdentityDiff(int[] newToOld, int[] oldToNew) {
+		this.newToOld = newToOld;
+		this.oldToNew = oldToNew;
+	}
+
+	IdentityDiff(List<?> oldList, List<?> newList) {
+		int oldSize = oldList.size();
+		int newSize = newList.size();
+		newToOld = new int[newSize];
+		oldToNew = new int[oldSize];
+		Arrays.fill(newToOld, -1);
+		Arrays.fill(oldToNew, -1);
+
+		//Index of the first unmatched occurrence of every old object, further occurrences are chained in nextSame
+		Map<Object, Integer> firstIndex = new IdentityHashMap<>(oldSize);
+		int[] nextSame = new int[oldSize];
+		for (int i = oldSize - 1; i >= 0; i--) {
+			Integer next = firstIndex.put(oldList.get(i), i);
+			nextSame[i] = next != null ? next : -1;
+		}
+
+		for (int i = 0; i < newSize; i++) {
+			Object object = newList.get(i);
+			Integer match = firstIndex.get(object);
+			if (match != null) {
+				int oldIndex = match;
+				newToOld[i] = oldIndex;
+				oldToNew[oldIndex] = i;
+				if (nextSame[oldIndex] != -1) {
+					firstIndex.put(object, nextSame[oldIndex]);
+				} else {
+					firstIndex.remove(object);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the matching of the old list to the new list without its unmatched elements.
+	 * Used to apply removals and moves before the inserted elements are created.
+	 */
+	IdentityDiff withoutInsertions() {
+		int matched = 0;
+		for (int oldIndex : newToOld) {
+			if (oldIndex != -1) matched++;
+		}
+		int[] matchedNewToOld = new int[matched];
+		int[] matchedOldToNew = new int[oldToNew.length];
+		Arrays.fill(matchedOldToNew, -1);
+		int index = 0;
+		for (int oldIndex : newToOld) {
+			if (oldIndex != -1) {
+				matchedNewToOld[index] = oldIndex;
+				matchedOldToNew[oldIndex] = index;
+				index++;
+			}
+		}
+		return new IdentityDiff(matchedNewToOld, matchedOldToNew);
+	}
+
+	/**
+	 * Returns the new indexes of the matched elements that have to be moved to get from the old order to the new one.
+	 * The matched elements that are not returned form the longest subsequence that kept its relative order,
+	 * so the number of moves is minimal.
+	 */
+	BitSet getMovedIndexes() {
+		int size = newToOld.length;
+		//Longest increasing subsequence of the old indexes, tails holds the new index ending the best subsequence of each length
+		int[] tails = new int[size];
+		int[] predecessors = new int[size];
+		int length = 0;
+		BitSet moved = new BitSet(size);
+		for (int i = 0; i < size; i++) {
+			int oldIndex = newToOld[i];
+			if (oldIndex == -1) continue;
+			moved.set(i);
+			int low = 0;
+			int high = length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (newToOld[tails[mid]] < oldIndex) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			predecessors[i] = low > 0 ? tails[low - 1] : -1;
+			tails[low] = i;
+			if (low == length) length++;
+		}
+		for (int i = length > 0 ? tails[length - 1] : -1; i != -1; i = predecessors[i]) {
+			moved.clear(i);
+		}
+		return moved;
+	}
+}
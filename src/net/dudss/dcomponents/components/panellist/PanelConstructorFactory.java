@@ -0,0 +1,72 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Panel factory used by a {@link DPanelList} that was given a panel class instead of a factory function.
+ * <br><br>
+ * The single argument constructor of the panel class is resolved once per runtime class of the elements and cached as a {@link MethodHandle}.
+ * The most specific constructor accepting the element is used, so elements that are subclasses of the declared parameter type work as well.
+ *
+ * @author DUDSS
+ *
+ * @param <V> The type of the elements.
+ * @param <T> The type of the panels.
+ */
+class PanelConstructorFactory<V, T extends DPanelListItem<V>> implements Function<V, T> {
+	private static final MethodType GENERIC_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private final Class<T> panelClass;
+	private final Map<Class<?>, MethodHandle> constructors = new ConcurrentHashMap<>();
+
+	PanelConstructorFactory(Class<T> panelClass) {
+		this.panelClass = panelClass;
+	}
+
+	@Override
+	public T apply(V object) {
+		Class<?> objectClass = object != null ? object.getClass() : Void.class;
+		MethodHandle constructor = constructors.get(objectClass);
+		if (constructor == null) {
+			constructor = constructors.computeIfAbsent(objectClass, this::resolve);
+		}
+		try {
+			return panelClass.cast(constructor.invokeExact((Object) object));
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Failed to create a " + panelClass.getName() + " for " + object, e);
+		}
+	}
+
+	/**
+	 * Finds the most specific single argument constructor accepting instances of the class.
+	 * @param objectClass The runtime class of the element or {@link Void} for null elements.
+	 */
+	private MethodHandle resolve(Class<?> objectClass) {
+		Constructor<?> best = null;
+		for (Constructor<?> constructor : panelClass.getDeclaredConstructors()) {
+			if (constructor.getParameterCount() != 1) continue;
+			Class<?> parameter = constructor.getParameterTypes()[0];
+			boolean accepts = objectClass == Void.class ? !parameter.isPrimitive() : parameter.isAssignableFrom(objectClass);
+			if (accepts && (best == null || best.getParameterTypes()[0].isAssignableFrom(parameter))) {
+				best = constructor;
+			}
+		}
+		if (best == null) {
+			throw new IllegalArgumentException(panelClass.getName() + " has no constructor accepting " + (objectClass == Void.class ? "null" : objectClass.getName()));
+		}
+		try {
+			best.setAccessible(true);
+			return MethodHandles.lookup().unreflectConstructor(best).asType(GENERIC_TYPE);
+		} catch (IllegalAccessException | SecurityException e) {
+			throw new IllegalStateException("Constructor " + best + " is not accessible", e);
+		}
+	}
+}
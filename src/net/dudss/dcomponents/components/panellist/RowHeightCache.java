@@ -0,0 +1,311 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Measured row heights of a virtualized {@link DPanelList} with variable row heights.
+ * <br><br>
+ * Heights are cached by the identity of the displayed object for the current row width, a different width discards them.
+ * Rows that were never measured count with an estimated height, the average of all measured rows, so the total height and the
+ * position of any row are known without creating a panel for every row.
+ * <br><br>
+ * Positions are kept in two Fenwick trees holding the sum and the number of measured rows, which makes measuring a row,
+ * looking up the position of a row and finding the row at a position O(log n) even when the estimate changes.
+ * Inserted, removed and moved rows shift the cached row heights in place, after which the trees are rebuilt in a single linear pass
+ * over them without looking up any object. Only a restructuring of all rows, for example a refresh, rebuilds them from the cached heights.
+ *
+ * @author DUDSS
+ */
+class RowHeightCache {
+	private Map<Object, Integer> heights = new IdentityHashMap<>();
+	private final Set<Object> stale = Collections.newSetFromMap(new IdentityHashMap<>());
+	private int width = -1;
+	private long measuredTotal = 0;
+
+	/**
+	 * Height used for rows that were never measured, as long as no row has been measured.
+	 */
+	private int defaultEstimate = 1;
+
+	private int size = 0;
+	private int[] rowHeights = new int[0];
+	private long[] sums = new long[1];
+	private int[] counts = new int[1];
+	private boolean valid = false;
+
+	/**
+	 * Sets the width the rows are laid out with, cached heights are discarded if it changed.
+	 */
+	void setWidth(int width) {
+		if (this.width != width) {
+			this.width = width;
+			clear();
+		}
+	}
+
+	int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Discards all measured heights.
+	 */
+	void clear() {
+		heights.clear();
+		stale.clear();
+		measuredTotal = 0;
+		valid = false;
+	}
+
+	/**
+	 * Marks the rows as restructured, the trees are rebuilt on the next {@link #ensure(List)}.
+	 */
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Inserts rows at the specified index. Has no effect if the trees are rebuilt anyway.
+	 * @param items The objects displayed by the inserted rows.
+	 */
+	void rowsInserted(int index, List<?> items) {
+		if (!valid) return;
+		int count = items.size();
+		if (rowHeights.length < size + count) {
+			rowHeights = Arrays.copyOf(rowHeights, Math.max(size + count, rowHeights.length * 2));
+		}
+		if (sums.length < size + count + 1) {
+			int capacity = Math.max(size + count + 1, sums.length * 2);
+			sums = new long[capacity];
+			counts = new int[capacity];
+		}
+		System.arraycopy(rowHeights, index, rowHeights, index + count, size - index);
+		for (int i = 0; i < count; i++) {
+			Integer height = heights.get(items.get(i));
+			rowHeights[index + i] = height != null ? height : -1;
+		}
+		size += count;
+		buildTrees();
+	}
+
+	/**
+	 * Removes the rows [index0, index1] and drops the heights of the objects they displayed.
+	 * @param items The objects displayed by the removed rows.
+	 */
+	void rowsRemoved(int index0, int index1, List<?> items) {
+		if (!valid) return;
+		for (Object item : items) {
+			forget(item);
+		}
+		System.arraycopy(rowHeights, index1 + 1, rowHeights, index0, size - index1 - 1);
+		size -= index1 - index0 + 1;
+		buildTrees();
+	}
+
+	/**
+	 * Moves the rows [index0, index1] so that the first of them is at the target index.
+	 */
+	void rowsMoved(int index0, int index1, int target) {
+		if (!valid || index0 == target) return;
+		int length = index1 - index0 + 1;
+		int[] block = Arrays.copyOfRange(rowHeights, index0, index1 + 1);
+		if (target < index0) {
+			System.arraycopy(rowHeights, target, rowHeights, target + length, index0 - target);
+		} else {
+			System.arraycopy(rowHeights, index1 + 1, rowHeights, index0, target - index0);
+		}
+		System.arraycopy(block, 0, rowHeights, target, length);
+		buildTrees();
+	}
+
+	/**
+	 * Replaces the object displayed by a row, the row takes the cached height of the new object. Only updates the trees.
+	 */
+	void rowReplaced(int row, Object previous, Object item) {
+		if (!valid) return;
+		forget(previous);
+		Integer height = heights.get(item);
+		updateRow(row, height != null ? height : -1);
+	}
+
+	/**
+	 * Drops the height of an object that is no longer displayed.
+	 * If another row displays the same object it is simply measured again.
+	 */
+	private void forget(Object item) {
+		Integer height = heights.remove(item);
+		if (height != null) {
+			measuredTotal -= height;
+			stale.remove(item);
+		}
+	}
+
+	/**
+	 * Marks the height of an object as outdated. The previous height is still used until the row is measured again.
+	 */
+	void invalidate(Object item) {
+		if (heights.containsKey(item)) {
+			stale.add(item);
+		}
+	}
+
+	void setDefaultEstimate(int height) {
+		defaultEstimate = Math.max(1, height);
+	}
+
+	/**
+	 * Whether the height of the object is known and up to date.
+	 */
+	boolean isMeasured(Object item) {
+		return heights.containsKey(item) && !stale.contains(item);
+	}
+
+	boolean hasMeasurements() {
+		return !heights.isEmpty();
+	}
+
+	/**
+	 * Returns the height used for rows that were never measured.
+	 */
+	int getEstimate() {
+		return heights.isEmpty() ? defaultEstimate : Math.max(1, (int) Math.round((double) measuredTotal / heights.size()));
+	}
+
+	/**
+	 * Rebuilds the trees if the rows were restructured since the last call. Heights of objects that are no longer displayed are dropped.
+	 */
+	void ensure(List<?> rows) {
+		if (valid && size == rows.size()) return;
+		size = rows.size();
+		if (rowHeights.length < size) {
+			rowHeights = new int[size];
+		}
+		if (sums.length < size + 1) {
+			sums = new long[size + 1];
+			counts = new int[size + 1];
+		}
+		Map<Object, Integer> retained = new IdentityHashMap<>();
+		measuredTotal = 0;
+		for (int i = 0; i < size; i++) {
+			Object item = rows.get(i);
+			Integer height = heights.get(item);
+			if (height != null) {
+				if (retained.put(item, height) == null) {
+					measuredTotal += height;
+				}
+				rowHeights[i] = height;
+			} else {
+				rowHeights[i] = -1;
+			}
+		}
+		stale.retainAll(retained.keySet());
+		heights = retained;
+		buildTrees();
+		valid = true;
+	}
+
+	/**
+	 * Builds the trees from the row heights in linear time.
+	 */
+	private void buildTrees() {
+		Arrays.fill(sums, 0, size + 1, 0);
+		Arrays.fill(counts, 0, size + 1, 0);
+		for (int i = 0; i < size; i++) {
+			if (rowHeights[i] >= 0) {
+				sums[i + 1] = rowHeights[i];
+				counts[i + 1] = 1;
+			}
+		}
+		for (int i = 1; i <= size; i++) {
+			int parent = i + (i & -i);
+			if (parent <= size) {
+				sums[parent] += sums[i];
+				counts[parent] += counts[i];
+			}
+		}
+	}
+
+	/**
+	 * Stores the measured height of the object displayed at the specified row.
+	 * @return Whether the height differs from the one used before.
+	 */
+	boolean setHeight(int row, Object item, int height) {
+		stale.remove(item);
+		Integer previous = heights.put(item, height);
+		measuredTotal += height - (previous != null ? previous : 0);
+		return updateRow(row, height);
+	}
+
+	/**
+	 * Sets the height of a row in the trees, -1 for a row that was not measured.
+	 * @return Whether the height differs from the one used before.
+	 */
+	private boolean updateRow(int row, int height) {
+		int old = rowHeights[row];
+		if (old == height) return false;
+		rowHeights[row] = height;
+		long delta = Math.max(height, 0) - Math.max(old, 0);
+		int countDelta = (height >= 0 ? 1 : 0) - (old >= 0 ? 1 : 0);
+		for (int i = row + 1; i <= size; i += i & -i) {
+			sums[i] += delta;
+			counts[i] += countDelta;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the height of a row, the estimate if it was never measured.
+	 */
+	int getHeight(int row) {
+		int height = rowHeights[row];
+		return height >= 0 ? height : getEstimate();
+	}
+
+	/**
+	 * Returns the summed height of the rows before the specified row, without gaps.
+	 */
+	long getTop(int row) {
+		long sum = 0;
+		int count = 0;
+		for (int i = row; i > 0; i -= i & -i) {
+			sum += sums[i];
+			count += counts[i];
+		}
+		return sum + (long) (row - count) * getEstimate();
+	}
+
+	/**
+	 * Returns the summed height of all rows, without gaps.
+	 */
+	long getTotalHeight() {
+		return getTop(size);
+	}
+
+	/**
+	 * Returns the index of the row at the y coordinate, including the gap below it, clamped to the existing rows.
+	 * @param y The coordinate relative to the top of the first row.
+	 * @param gap The gap between rows.
+	 */
+	int rowAtY(long y, int gap) {
+		if (size == 0) return -1;
+		int estimate = getEstimate();
+		int position = 0;
+		long remaining = y;
+		for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+			int next = position + step;
+			if (next <= size) {
+				long extent = sums[next] + (long) (step - counts[next]) * estimate + (long) step * gap;
+				if (extent <= remaining) {
+					position = next;
+					remaining -= extent;
+				}
+			}
+		}
+		return Math.min(position, size - 1);
+	}
+}
@@ -0,0 +1,119 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.awt.Component;
+import java.util.List;
+
+/**
+ * Sorted y offsets of the rows of a {@link DPanelList} used for hit testing.
+ * <br><br>
+ * The index is built from the bounds of the row panels after the layout and stays valid until the next layout or structure change.
+ * Looking up the row at a coordinate is then a binary search that does not allocate anything,
+ * which keeps mouse handling and drop detection cheap on large lists.
+ *
+ * @author DUDSS
+ */
+class RowOffsetIndex {
+	private int first = 0;
+	private int count = 0;
+	private int[] tops = new int[0];
+	private int[] bottoms = new int[0];
+	private int left = 0;
+	private int right = 0;
+	private boolean valid = false;
+
+	void invalidate() {
+		valid = false;
+	}
+
+	/**
+	 * Whether the index is up to date and covers the specified rows.
+	 */
+	boolean isValid(int first, int last) {
+		return valid && this.first == first && this.count == last - first + 1;
+	}
+
+	/**
+	 * Rebuilds the index from the current bounds of the panels of rows [first, last].
+	 * Rows without a panel get a zero height at the position of the next row.
+	 * @param left The x coordinate the rows start at.
+	 * @param right The x coordinate the rows end at (exclusive).
+	 */
+	void rebuild(List<? extends Component> panels, int first, int last, int left, int right) {
+		this.first = first;
+		this.count = Math.max(0, last - first + 1);
+		if (tops.length < count) {
+			int capacity = Math.max(count, tops.length * 2);
+			tops = new int[capacity];
+			bottoms = new int[capacity];
+		}
+		this.left = left;
+		this.right = right;
+		int next = Integer.MAX_VALUE;
+		for (int i = count - 1; i >= 0; i--) {
+			Component panel = panels.get(first + i);
+			if (panel != null) {
+				tops[i] = panel.getY();
+				bottoms[i] = panel.getY() + panel.getHeight();
+				next = tops[i];
+			} else {
+				tops[i] = next;
+				bottoms[i] = next;
+			}
+		}
+		//Trailing rows without a panel
+		for (int i = 0; i < count; i++) {
+			if (tops[i] == Integer.MAX_VALUE) {
+				tops[i] = i > 0 ? bottoms[i - 1] : 0;
+				bottoms[i] = tops[i];
+			}
+		}
+		valid = true;
+	}
+
+	boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Returns the index of the last row that starts at or above the y coordinate or -1 if the coordinate is above all rows.
+	 * The coordinate can also lie in the gap below the returned row.
+	 */
+	int rowAtY(int y) {
+		int low = 0;
+		int high = count - 1;
+		int result = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (tops[mid] <= y) {
+				result = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return result == -1 ? -1 : first + result;
+	}
+
+	/**
+	 * Whether the x coordinate lies within the rows extended by the specified margin on both sides.
+	 */
+	boolean containsX(int x, int margin) {
+		return x >= left - margin && x < right + margin;
+	}
+
+	int getFirst() {
+		return first;
+	}
+
+	int getLast() {
+		return first + count - 1;
+	}
+
+	int getTop(int row) {
+		return tops[row - first];
+	}
+
+	int getBottom(int row) {
+		return bottoms[row - first];
+	}
+}
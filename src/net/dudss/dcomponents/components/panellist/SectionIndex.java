@@ -0,0 +1,143 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sections of a sectioned {@link DPanelList}, the runs of consecutive elements of the list that share the same section key.
+ * <br><br>
+ * The sections are taken from a snapshot of the list by {@link #split(List, Function, Set, List)}, which also leaves out the elements
+ * of collapsed sections so that they never get a row. The header of a section is placed in front of the first row of the section,
+ * collapsed and empty sections in front of the next row. These anchor rows are found in a single pass over the rows and then
+ * looked up with a binary search by the layout.
+ *
+ * @author DUDSS
+ */
+class SectionIndex {
+	/**
+	 * A run of elements with the same key.
+	 */
+	static final class Section {
+		final Object key;
+		final int size;
+		final boolean collapsed;
+
+		Section(Object key, int size, boolean collapsed) {
+			this.key = key;
+			this.size = size;
+			this.collapsed = collapsed;
+		}
+	}
+
+	private List<Section> sections = Collections.emptyList();
+	private int[] anchors = new int[0];
+	private boolean anchorsValid = false;
+
+	/**
+	 * Splits a snapshot of the list into sections and returns the elements of the expanded sections.
+	 * @param snapshot The elements of the list.
+	 * @param sectionKey Computes the section key of an element.
+	 * @param collapsed The keys of the collapsed sections.
+	 * @param sections Receives the sections of the snapshot in order.
+	 */
+	static <V> List<V> split(List<V> snapshot, Function<? super V, ?> sectionKey, Set<Object> collapsed, List<Section> sections) {
+		List<V> expanded = new ArrayList<>(snapshot.size());
+		int start = 0;
+		while (start < snapshot.size()) {
+			Object key = sectionKey.apply(snapshot.get(start));
+			int end = start + 1;
+			while (end < snapshot.size() && Objects.equals(sectionKey.apply(snapshot.get(end)), key)) {
+				end++;
+			}
+			boolean isCollapsed = collapsed.contains(key);
+			sections.add(new Section(key, end - start, isCollapsed));
+			if (!isCollapsed) {
+				expanded.addAll(snapshot.subList(start, end));
+			}
+			start = end;
+		}
+		return expanded;
+	}
+
+	void setSections(List<Section> sections) {
+		this.sections = sections;
+		anchorsValid = false;
+	}
+
+	/**
+	 * Marks the anchor rows as outdated after the rows changed.
+	 */
+	void invalidate() {
+		anchorsValid = false;
+	}
+
+	/**
+	 * Finds the anchor row of every section if the rows changed since the last call.
+	 * Rows of an expanded section that have not been inserted yet, for example during an asynchronous refresh, are simply missing from it.
+	 */
+	<V> void ensureAnchors(List<V> rows, Function<? super V, ?> sectionKey) {
+		if (anchorsValid) return;
+		if (anchors.length != sections.size()) {
+			anchors = new int[sections.size()];
+		}
+		int row = 0;
+		for (int k = 0; k < sections.size(); k++) {
+			Section section = sections.get(k);
+			anchors[k] = row;
+			if (section.collapsed) continue;
+			//Adjacent sections can share a key if a collapsed section lies between them
+			int end = Math.min(rows.size(), row + section.size);
+			while (row < end && Objects.equals(sectionKey.apply(rows.get(row)), section.key)) {
+				row++;
+			}
+		}
+		anchorsValid = true;
+	}
+
+	boolean isEmpty() {
+		return sections.isEmpty();
+	}
+
+	int size() {
+		return sections.size();
+	}
+
+	Section get(int section) {
+		return sections.get(section);
+	}
+
+	/**
+	 * Returns the index of the first row after the header of the section.
+	 */
+	int getAnchor(int section) {
+		return anchors[section];
+	}
+
+	/**
+	 * Returns the number of section headers above the row.
+	 */
+	int headersBefore(int row) {
+		int low = 0;
+		int high = anchors.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (anchors[mid] <= row) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the section the row belongs to or -1 if there are no sections.
+	 */
+	int sectionOf(int row) {
+		return headersBefore(row) - 1;
+	}
+}
@@ -0,0 +1,109 @@
+package net.dudss.dcomponents.components.panellist;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Prefix index over the type-ahead keys of the rows of a {@link DPanelList}.
+ * <br><br>
+ * The lower case keys are sorted once, so the rows whose key starts with a prefix form a range that is found with two binary searches.
+ * Only the row numbers of that range are scanned for the next match, no key is computed or compared per keystroke.
+ * <br><br>
+ * An index is built on a worker thread from a snapshot of the rows and is immutable afterwards. The keys are cached by element identity,
+ * so a rebuild after the rows changed only calls the key function for elements that were not part of the previous index or were reported as changed.
+ *
+ * @author DUDSS
+ */
+class TypeAheadIndex<V> {
+	private final List<V> rows;
+	private final Map<V, String> keys;
+	private final String[] sortedKeys;
+	private final int[] sortedRows;
+
+	/**
+	 * @param rows Snapshot of the rows, not modified afterwards.
+	 * @param key Computes the key of an element.
+	 * @param previous Index whose cached keys are reused or null to compute every key.
+	 * @param changed Elements whose cached keys are outdated.
+	 */
+	TypeAheadIndex(List<V> rows, Function<? super V, String> key, TypeAheadIndex<V> previous, Set<?> changed) {
+		this.rows = rows;
+		keys = new IdentityHashMap<>(rows.size());
+		String[] rowKeys = new String[rows.size()];
+		for (int i = 0; i < rowKeys.length; i++) {
+			V row = rows.get(i);
+			String rowKey = keys.get(row);
+			if (rowKey == null && previous != null && !changed.contains(row)) {
+				rowKey = previous.keys.get(row);
+			}
+			if (rowKey == null) {
+				String text = key.apply(row);
+				rowKey = text != null ? text.toLowerCase(Locale.ROOT) : "";
+			}
+			keys.put(row, rowKey);
+			rowKeys[i] = rowKey;
+		}
+
+		Integer[] order = new Integer[rowKeys.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		//Rows with equal keys stay in row order
+		Arrays.sort(order, (a, b) -> rowKeys[a].compareTo(rowKeys[b]));
+		sortedKeys = new String[order.length];
+		sortedRows = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			sortedRows[i] = order[i];
+			sortedKeys[i] = rowKeys[order[i]];
+		}
+	}
+
+	/**
+	 * Returns the first row at or after the start row whose key starts with the prefix, ignoring case.
+	 * Wraps around to the first matching row if there is none after the start row.
+	 * @return The row in the snapshot the index was built from or -1 if no key matches.
+	 */
+	int find(String prefix, int start) {
+		String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+		int from = lowerBound(lowerPrefix);
+		int to = lowerBound(lowerPrefix + Character.MAX_VALUE);
+		int next = -1;
+		int first = -1;
+		for (int i = from; i < to; i++) {
+			int row = sortedRows[i];
+			if (row >= start && (next == -1 || row < next)) {
+				next = row;
+			}
+			if (first == -1 || row < first) {
+				first = row;
+			}
+		}
+		return next != -1 ? next : first;
+	}
+
+	/**
+	 * Returns the element at a row of the snapshot the index was built from.
+	 */
+	V getRow(int row) {
+		return rows.get(row);
+	}
+
+	private int lowerBound(String key) {
+		int low = 0;
+		int high = sortedKeys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedKeys[mid].compareTo(key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}